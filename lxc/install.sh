@@ -1,6 +1,9 @@
 #! /bin/sh
 
-# Install LXC template and sudoers definition for use by Garrit.
+# Install LXC template, workspace helper and sudoers definition for use by
+# Garrit.
+#
+# Usage: install.sh [workspace root]
 
 if [ `id -u` -ne 0 ]
 then
@@ -10,9 +13,25 @@ fi
 
 errors=0
 
+# The executor's workspaceRoot must name the same directory.
+workspace_root=${1:-/var/lib/garrit/workspaces}
+
 echo "Adding LXC template to library..."
 cp lxc-garrit /usr/share/lxc/templates/lxc-garrit
 
+echo
+echo "Creating workspace root $workspace_root..."
+mkdir -p "$workspace_root"
+if [ -n "$SUDO_USER" ]
+then
+    chown "$SUDO_USER" "$workspace_root"
+fi
+mkdir -p /etc/garrit
+echo "$workspace_root" > /etc/garrit/workspace-root
+
+echo "Installing workspace helper..."
+install -o root -g root -m 0755 garrit-workspace /usr/local/sbin/garrit-workspace
+
 echo
 echo -n "Checking validity of sudoers file..."
 visudo -cqf lxc-sudoers
@@ -0,0 +1,20 @@
+package org.garrit.executor;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a submission archive exceeds the size or entry limits of the
+ * {@link ArchiveSpool spool}.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class ArchiveLimitException extends IOException
+{
+    private static final long serialVersionUID = 1L;
+
+    public ArchiveLimitException(String message)
+    {
+        super(message);
+    }
+}
@@ -0,0 +1,266 @@
+package org.garrit.executor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.garrit.common.messages.RegisteredSubmission;
+import org.garrit.common.messages.SubmissionFile;
+
+/**
+ * Keep submission files on disk rather than on the heap. Archives are
+ * streamed to disk as they arrive, so that large multi-file submissions never
+ * sit on the heap, and large submissions received inline can be spilled to
+ * disk while they wait to be executed. Each submission's files go into a
+ * directory of their own and are described by {@link SpooledSubmissionFile
+ * spooled files}, which environments copy from when unpacking the submission.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Slf4j
+public class ArchiveSpool
+{
+    /**
+     * The name of the spool's directory under the system temporary directory
+     * when none is configured. It is deliberately unlike the names of
+     * {@link LXCEnvironment} workspaces, so that the spool is never reaped as
+     * one.
+     */
+    public static final String DEFAULT_NAME = "executor-spool";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Path root;
+    /**
+     * The maximum total uncompressed size of an archive in bytes.
+     */
+    private final long maxBytes;
+    /**
+     * The maximum number of entries in an archive, directories included.
+     */
+    private final int maxEntries;
+
+    /**
+     * @param root the directory under which archives are unpacked
+     * @param maxBytes the maximum total uncompressed size of an archive
+     * @param maxEntries the maximum number of entries in an archive
+     */
+    public ArchiveSpool(Path root, long maxBytes, int maxEntries)
+    {
+        this.root = root;
+        this.maxBytes = maxBytes;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Unpack a zip archive into the spool. Nothing is left behind if the
+     * archive is malformed or exceeds the spool's limits.
+     *
+     * @param archive the archive
+     * @return the files in the archive
+     * @throws ArchiveLimitException if the archive is too large or has too
+     *             many entries
+     * @throws IOException if the archive is malformed or cannot be spooled
+     */
+    public List<SubmissionFile> spool(InputStream archive) throws IOException
+    {
+        Files.createDirectories(this.root);
+        Path spool = Files.createTempDirectory(this.root, "archive-");
+
+        try
+        {
+            return this.unzip(archive, spool);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            deleteRecursively(spool);
+            throw e;
+        }
+    }
+
+    /**
+     * Move a submission's inline files into the spool, releasing their
+     * contents from the heap. Files which are already spooled are kept as
+     * they are.
+     *
+     * @param files the submission's files
+     * @return the spooled files
+     * @throws IOException if the files cannot be spooled
+     */
+    public List<SubmissionFile> spill(List<SubmissionFile> files) throws IOException
+    {
+        Files.createDirectories(this.root);
+        Path spool = Files.createTempDirectory(this.root, "spill-");
+
+        try
+        {
+            ArrayList<SubmissionFile> spilled = new ArrayList<>(files.size());
+            for (SubmissionFile file : files)
+            {
+                if (file instanceof SpooledSubmissionFile)
+                {
+                    spilled.add(file);
+                    continue;
+                }
+
+                byte[] contents = (file.getContents() != null) ? file.getContents() : new byte[0];
+                Path source = spool.resolve(safeName(file.getFilename()));
+                Files.createDirectories(source.getParent());
+                Files.write(source, contents);
+
+                spilled.add(new SpooledSubmissionFile(file.getFilename(), source, spool, contents.length,
+                        Digests.sha256().digest(contents)));
+            }
+
+            return spilled;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            deleteRecursively(spool);
+            throw e;
+        }
+    }
+
+    /**
+     * @param files a submission's files
+     * @return the total size of the files' contents held on the heap
+     */
+    public static long inlineSize(List<SubmissionFile> files)
+    {
+        long size = 0;
+        if (files == null)
+            return size;
+
+        for (SubmissionFile file : files)
+            if (file.getContents() != null)
+                size += file.getContents().length;
+
+        return size;
+    }
+
+    private List<SubmissionFile> unzip(InputStream archive, Path spool) throws IOException
+    {
+        ArrayList<SubmissionFile> files = new ArrayList<>();
+        ZipInputStream zip = new ZipInputStream(archive);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        int entries = 0;
+
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null)
+        {
+            if (++entries > this.maxEntries)
+                throw new ArchiveLimitException(
+                        String.format("Archive has more than %d entries", this.maxEntries));
+
+            String filename = safeName(entry.getName());
+            if (entry.isDirectory())
+                continue;
+
+            Path source = spool.resolve(filename);
+            Files.createDirectories(source.getParent());
+
+            MessageDigest digest = Digests.sha256();
+            long length = 0;
+
+            try (OutputStream output = Files.newOutputStream(source))
+            {
+                int read;
+                while ((read = zip.read(buffer)) >= 0)
+                {
+                    /* Count what's actually inflated; declared sizes can lie. */
+                    total += read;
+                    if (total > this.maxBytes)
+                        throw new ArchiveLimitException(
+                                String.format("Archive exceeds %d bytes uncompressed", this.maxBytes));
+
+                    output.write(buffer, 0, read);
+                    digest.update(buffer, 0, read);
+                    length += read;
+                }
+            }
+
+            files.add(new SpooledSubmissionFile(filename, source, spool, length, digest.digest()));
+        }
+
+        if (files.isEmpty())
+            throw new IOException("Archive contains no files");
+
+        return files;
+    }
+
+    /**
+     * Check that an entry's name stays within the archive's directory.
+     *
+     * @param name the entry's name
+     * @return the normalised name
+     * @throws IOException if the name is unsafe
+     */
+    static String safeName(String name) throws IOException
+    {
+        Path path = Paths.get(name.replace('\\', '/')).normalize();
+        if (name.isEmpty() || path.isAbsolute() || path.startsWith("..") || path.toString().isEmpty())
+            throw new IOException(String.format("Unsafe archive entry \"%s\"", name));
+
+        return path.toString();
+    }
+
+    /**
+     * Remove the spooled files of a submission, if it has any.
+     *
+     * @param submission the submission
+     */
+    public static void discard(RegisteredSubmission submission)
+    {
+        if (submission.getFiles() == null)
+            return;
+
+        for (SubmissionFile file : submission.getFiles())
+        {
+            if (!(file instanceof SpooledSubmissionFile))
+                continue;
+
+            Path spool = ((SpooledSubmissionFile) file).getSpool();
+            try
+            {
+                deleteRecursively(spool);
+            }
+            catch (IOException e)
+            {
+                log.warn("Failed to remove spooled archive " + spool, e);
+            }
+
+            /* Every file of a submission shares the one spool. */
+            return;
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException
+    {
+        if (!Files.exists(directory))
+            return;
+
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(directory))
+        {
+            paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+
+        for (Path path : paths)
+            Files.deleteIfExists(path);
+    }
+}
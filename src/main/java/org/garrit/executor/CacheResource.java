@@ -0,0 +1,35 @@
+package org.garrit.executor;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Expose management of the {@link ResultCache result cache} via HTTP.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Path("/cache")
+@Produces(MediaType.APPLICATION_JSON)
+public class CacheResource
+{
+    private final ResultCache cache;
+
+    public CacheResource(ResultCache cache)
+    {
+        this.cache = cache;
+    }
+
+    @DELETE
+    @Path("/{problem}")
+    public Response invalidateProblem(@PathParam("problem") String problem)
+    {
+        this.cache.invalidate(problem);
+        return Response.status(Status.NO_CONTENT).build();
+    }
+}
@@ -0,0 +1,152 @@
+package org.garrit.executor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.garrit.common.messages.SubmissionFile;
+import org.garrit.executor.CpuSlots.CpuSlot;
+import org.garrit.executor.ExecutionEnvironment.EnvironmentResponse;
+
+/**
+ * Measure how fast this host runs submissions relative to a reference
+ * machine. A fixed benchmark is compiled and run inside an ordinary
+ * {@link ExecutionEnvironment environment}, so the measurement includes the
+ * same sandbox overheads that submissions pay.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Slf4j
+public class Calibration
+{
+    private static final String BENCHMARK_RESOURCE = "calibration/Calibrate.java";
+    private static final String BENCHMARK_CLASS = "Calibrate";
+    private static final int COMPILE_TIMEOUT = 60;
+    private static final int RUN_TIMEOUT = 120;
+
+    /**
+     * The benchmark's runtime on the reference machine in milliseconds.
+     */
+    private final int referenceRuntime;
+    /**
+     * The number of times to run the benchmark.
+     */
+    private final int runs;
+
+    /**
+     * @param referenceRuntime the benchmark's runtime on the reference
+     *            machine in milliseconds
+     * @param runs the number of times to run the benchmark
+     */
+    public Calibration(int referenceRuntime, int runs)
+    {
+        if (referenceRuntime < 1 || runs < 1)
+            throw new IllegalArgumentException("Invalid reference runtime or number of runs");
+
+        this.referenceRuntime = referenceRuntime;
+        this.runs = runs;
+    }
+
+    /**
+     * Run the benchmark and compute this host's speed factor.
+     *
+     * @param slot the cores to run the benchmark on, or null
+     * @return the speed factor: greater than 1 if this host is faster than the
+     *         reference machine, less than 1 if it is slower
+     * @throws IOException if the benchmark cannot be run
+     */
+    public double calibrate(CpuSlot slot) throws IOException
+    {
+        SubmissionFile benchmark = new SubmissionFile();
+        benchmark.setFilename(BENCHMARK_CLASS + ".java");
+        benchmark.setContents(benchmarkSource());
+
+        ArrayList<Integer> runtimes = new ArrayList<>();
+
+        try (ExecutionEnvironment environment = ExecutionEnvironmentFactory.getExecutionEnvironment(slot))
+        {
+            Path unpacked = environment.unpack(Collections.singletonList(benchmark));
+
+            EnvironmentResponse compiled = environment.execute(
+                    Arrays.asList("javac", unpacked.resolve(benchmark.getFilename()).toString()),
+                    COMPILE_TIMEOUT);
+            if (compiled.exitCode != EnvironmentResponse.SUCCESS)
+                throw new IOException("Failed to compile calibration benchmark: " + compiled.stderr);
+
+            List<String> command = Arrays.asList(
+                    "/usr/local/bin/cputime", "java", "-cp", unpacked.toString(), BENCHMARK_CLASS);
+            for (int i = 0; i < this.runs; i++)
+            {
+                EnvironmentResponse response = environment.execute(command, RUN_TIMEOUT);
+                if (response.exitCode != EnvironmentResponse.SUCCESS)
+                    throw new IOException("Calibration benchmark failed: " + response.stderr);
+
+                /* cputime gives the runtime as the last line of stderr. */
+                String[] stderrLines = response.stderr.split("\n");
+                try
+                {
+                    runtimes.add(Integer.valueOf(stderrLines[stderrLines.length - 1].trim()));
+                }
+                catch (NumberFormatException e)
+                {
+                    throw new IOException("Failed to read calibration benchmark runtime", e);
+                }
+            }
+        }
+
+        double speedFactor = speedFactor(this.referenceRuntime, runtimes);
+        log.info("Calibration runtimes {} ms against a reference of {} ms; speed factor {}",
+                runtimes, this.referenceRuntime, String.format("%.3f", speedFactor));
+
+        return speedFactor;
+    }
+
+    /**
+     * Compute a speed factor from the benchmark's runtimes. The median is
+     * used so that a single disturbed run does not skew the result.
+     *
+     * @param referenceRuntime the runtime on the reference machine
+     * @param runtimes the runtimes measured on this host
+     * @return the speed factor
+     */
+    public static double speedFactor(int referenceRuntime, List<Integer> runtimes)
+    {
+        if (runtimes.isEmpty())
+            throw new IllegalArgumentException("No runtimes to calibrate against");
+
+        ArrayList<Integer> sorted = new ArrayList<>(runtimes);
+        Collections.sort(sorted);
+
+        int size = sorted.size();
+        double median = (size % 2 == 1)
+                ? sorted.get(size / 2)
+                : (sorted.get(size / 2 - 1) + sorted.get(size / 2)) / 2.0;
+
+        return referenceRuntime / Math.max(median, 1.0);
+    }
+
+    private static byte[] benchmarkSource() throws IOException
+    {
+        try (InputStream source = Calibration.class.getResourceAsStream(BENCHMARK_RESOURCE))
+        {
+            if (source == null)
+                throw new IOException("Calibration benchmark is missing");
+
+            ByteArrayOutputStream contents = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = source.read(buffer)) >= 0)
+                contents.write(buffer, 0, read);
+
+            return contents.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.garrit.executor;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.garrit.common.messages.RegisteredSubmission;
+import org.garrit.common.messages.SubmissionFile;
+
+/**
+ * A bounded, least-recently-used cache of the files produced by compiling
+ * submissions, keyed by everything which determines what compilation
+ * produces: the submission's files and language. Unlike
+ * {@link ResultCache results}, compilations don't depend on the problem, so
+ * they survive a change to it, which is exactly when a problem's submissions
+ * are rejudged.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class CompilationCache
+{
+    private final LinkedHashMap<String, List<SubmissionFile>> entries;
+
+    /**
+     * @param capacity the maximum number of compilations to retain
+     */
+    public CompilationCache(int capacity)
+    {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Compilation cache capacity must be positive");
+
+        this.entries = new LinkedHashMap<String, List<SubmissionFile>>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<SubmissionFile>> eldest)
+            {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Compute the cache key for a submission.
+     *
+     * @param submission the submission
+     * @return the cache key
+     */
+    public static String key(RegisteredSubmission submission)
+    {
+        MessageDigest digest = Digests.sha256();
+
+        ResultCache.update(digest, submission.getLanguage().toLowerCase());
+        ResultCache.updateFiles(digest, submission.getFiles());
+
+        return Digests.hex(digest.digest());
+    }
+
+    /**
+     * @param key the cache key
+     * @return the files produced by compiling, or null if there are none
+     */
+    public synchronized List<SubmissionFile> get(String key)
+    {
+        return this.entries.get(key);
+    }
+
+    /**
+     * Cache the files produced by a compilation.
+     *
+     * @param key the cache key
+     * @param compiled the files, named relative to the submission's unpacked
+     *            files
+     */
+    public synchronized void put(String key, List<SubmissionFile> compiled)
+    {
+        this.entries.put(key, Collections.unmodifiableList(new ArrayList<>(compiled)));
+    }
+
+    /**
+     * @return the number of compilations currently cached
+     */
+    public synchronized int size()
+    {
+        return this.entries.size();
+    }
+}
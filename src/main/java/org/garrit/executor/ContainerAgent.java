@@ -0,0 +1,287 @@
+package org.garrit.executor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small agent started once inside each container, which runs commands on
+ * behalf of an {@link LXCEnvironment environment}. Running a command through
+ * the agent costs a process fork, rather than a fresh <code>sudo</code> and
+ * <code>lxc-execute</code> each setting up and tearing down the container.
+ * <p>
+ * Requests and responses are exchanged a line at a time over the agent's
+ * <code>stdin</code> and <code>stdout</code>. Each run has a directory of its
+ * own under the runs directory, named by its ID, in which the environment
+ * leaves the command and its input and the agent leaves the command's output:
+ * <ul>
+ * <li><code>command</code>: the command's arguments, separated by NUL</li>
+ * <li><code>stdin</code>: the command's input, if it has any</li>
+ * <li><code>stdout</code>, <code>stderr</code>: the command's output</li>
+ * </ul>
+ * The requests are <code>RUN &lt;id&gt; &lt;timeout in seconds&gt;</code> and
+ * <code>EXIT</code>. A run is answered with
+ * <code>DONE &lt;id&gt; &lt;exit code&gt;</code>,
+ * <code>TIMEOUT &lt;id&gt;</code> if the command was killed for exceeding its
+ * timeout, or <code>ERROR &lt;id&gt; &lt;message&gt;</code>.
+ * <p>
+ * Before answering a run which finished, the agent kills every other process
+ * in the container but its own ancestors, found through <code>/proc</code>,
+ * so that nothing a command leaves running in the background outlives it. If
+ * any cannot be killed, the run is answered with an error.
+ * <p>
+ * The agent runs inside the container, so it depends on nothing but the JDK,
+ * and it is exposed to the container as this one class file, so it must not
+ * grow any nested or anonymous classes, lambdas included.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class ContainerAgent
+{
+    public static final String COMMAND_FILE = "command";
+    public static final String STDIN_FILE = "stdin";
+    public static final String STDOUT_FILE = "stdout";
+    public static final String STDERR_FILE = "stderr";
+
+    /**
+     * The number of times to look for and kill leftover processes before
+     * giving up on them, and the time in milliseconds between attempts.
+     */
+    private static final int REAP_ATTEMPTS = 50;
+    private static final long REAP_INTERVAL = 10;
+
+    private final Path runs;
+    private final PrintStream responses;
+    /**
+     * The process filesystem in which to find leftover processes, or null to
+     * leave them be.
+     */
+    private final Path proc;
+
+    public ContainerAgent(Path runs, PrintStream responses)
+    {
+        this(runs, responses, null);
+    }
+
+    /**
+     * @param runs the runs directory
+     * @param responses where to send responses
+     * @param proc the container's process filesystem, through which processes
+     *            left behind by each run are killed, or null to leave them be
+     */
+    public ContainerAgent(Path runs, PrintStream responses, Path proc)
+    {
+        this.runs = runs;
+        this.responses = responses;
+        this.proc = proc;
+    }
+
+    /**
+     * @param args the runs directory
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 1)
+        {
+            System.err.println("Usage: ContainerAgent <runs directory>");
+            System.exit(2);
+        }
+
+        BufferedReader requests = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        new ContainerAgent(Paths.get(args[0]), System.out, Paths.get("/proc")).serve(requests);
+    }
+
+    /**
+     * Answer requests until told to exit or the requests run out.
+     *
+     * @param requests the source of requests
+     * @throws IOException if the requests cannot be read
+     */
+    public void serve(BufferedReader requests) throws IOException
+    {
+        String request;
+        while ((request = requests.readLine()) != null)
+        {
+            String[] fields = request.trim().split(" ");
+            if (fields[0].equals("EXIT"))
+                break;
+
+            if (!fields[0].equals("RUN") || fields.length != 3)
+            {
+                this.respond("ERROR - Malformed request");
+                continue;
+            }
+
+            this.respond(this.run(fields[1], fields[2]));
+        }
+    }
+
+    private String run(String id, String timeout)
+    {
+        try
+        {
+            if (!id.matches("[0-9]+"))
+                return "ERROR " + id + " Malformed run ID";
+
+            Path directory = this.runs.resolve(id);
+            String command = new String(Files.readAllBytes(directory.resolve(COMMAND_FILE)), StandardCharsets.UTF_8);
+            List<String> arguments = Arrays.asList(command.split("\0"));
+
+            File stdout = directory.resolve(STDOUT_FILE).toFile();
+            File stderr = directory.resolve(STDERR_FILE).toFile();
+            Path stdin = directory.resolve(STDIN_FILE);
+
+            ProcessBuilder builder = new ProcessBuilder(arguments)
+                    .redirectOutput(stdout)
+                    .redirectError(stderr);
+            if (Files.exists(stdin))
+                builder.redirectInput(stdin.toFile());
+
+            Process process = builder.start();
+            if (!Files.exists(stdin))
+                process.getOutputStream().close();
+
+            boolean finished = process.waitFor(Long.parseLong(timeout), TimeUnit.SECONDS);
+            if (!finished)
+            {
+                process.destroyForcibly();
+                process.waitFor();
+            }
+
+            /* The environment reads the output from outside the container,
+             * where it may not be running as root. */
+            stdout.setReadable(true, false);
+            stderr.setReadable(true, false);
+
+            if (!finished)
+                return "TIMEOUT " + id;
+
+            if (this.proc != null && !this.reap())
+                return "ERROR " + id + " Failed to kill leftover processes";
+
+            return "DONE " + id + " " + process.exitValue();
+        }
+        catch (IOException | NumberFormatException e)
+        {
+            return "ERROR " + id + " " + String.valueOf(e.getMessage()).replace('\n', ' ');
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return "ERROR " + id + " Interrupted";
+        }
+    }
+
+    /**
+     * Kill every process left in the container, save the agent and its
+     * ancestors.
+     *
+     * @return whether none are left
+     */
+    private boolean reap() throws IOException, InterruptedException
+    {
+        for (int attempt = 0; attempt < REAP_ATTEMPTS; attempt++)
+        {
+            List<String> strays = strays(this.proc);
+            if (strays.isEmpty())
+                return true;
+
+            ArrayList<String> command = new ArrayList<>(strays.size() + 2);
+            command.add("kill");
+            command.add("-KILL");
+            command.addAll(strays);
+
+            /* Some may exit before they are killed, so the outcome is only
+             * known from the next look. */
+            new ProcessBuilder(command)
+                    .redirectOutput(new File("/dev/null"))
+                    .redirectError(new File("/dev/null"))
+                    .start()
+                    .waitFor();
+
+            TimeUnit.MILLISECONDS.sleep(REAP_INTERVAL);
+        }
+
+        return strays(this.proc).isEmpty();
+    }
+
+    /**
+     * Find the processes running other than the agent and its ancestors.
+     * Zombies are left to whichever process reaps them.
+     *
+     * @param proc the process filesystem
+     * @return the IDs of the processes
+     * @throws IOException if the process filesystem cannot be read
+     */
+    static List<String> strays(Path proc) throws IOException
+    {
+        HashSet<String> spared = new HashSet<>();
+        String pid = proc.resolve("self").toRealPath().getFileName().toString();
+        while (spared.add(pid))
+        {
+            String[] stat = stat(proc.resolve(pid));
+            if (stat == null)
+                break;
+
+            pid = stat[1];
+        }
+
+        ArrayList<String> strays = new ArrayList<>();
+        try (DirectoryStream<Path> processes = Files.newDirectoryStream(proc, "[0-9]*"))
+        {
+            for (Path process : processes)
+            {
+                if (spared.contains(process.getFileName().toString()))
+                    continue;
+
+                String[] stat = stat(process);
+                if (stat != null && !stat[0].equals("Z"))
+                    strays.add(process.getFileName().toString());
+            }
+        }
+
+        return strays;
+    }
+
+    /**
+     * Read a process's status.
+     *
+     * @param process the process's directory in the process filesystem
+     * @return the fields following the process's name, starting with its
+     *         state and parent's ID, or null if it is gone
+     */
+    private static String[] stat(Path process)
+    {
+        try
+        {
+            String stat = new String(Files.readAllBytes(process.resolve("stat")), StandardCharsets.UTF_8);
+
+            /* The name is in parentheses, and may itself contain spaces and
+             * parentheses. */
+            return stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+        }
+        catch (IOException | IndexOutOfBoundsException e)
+        {
+            return null;
+        }
+    }
+
+    private void respond(String response)
+    {
+        this.responses.println(response);
+        this.responses.flush();
+    }
+}
@@ -0,0 +1,206 @@
+package org.garrit.executor;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Divide the host's cores between the executor itself and a number of
+ * execution slots. Each slot is a disjoint set of cores to which a single
+ * {@link ExecutionEnvironment environment} is pinned, so concurrent
+ * executions do not compete with each other or with the executor for CPU
+ * time.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Slf4j
+public class CpuSlots
+{
+    private static final Path ONLINE_CPUS = Paths.get("/sys/devices/system/cpu/online");
+    private static final int TASKSET_TIMEOUT = 10;
+
+    /**
+     * Cores kept for the executor's own threads.
+     */
+    @Getter
+    private final List<Integer> reserved;
+    /**
+     * Cores available to executions, grouped into slots.
+     */
+    @Getter
+    private final List<CpuSlot> slots;
+
+    /**
+     * @param cpus the cores available on the host
+     * @param reservedCores the number of cores to keep for the executor
+     * @param coresPerSlot the number of cores given to each slot
+     */
+    public CpuSlots(List<Integer> cpus, int reservedCores, int coresPerSlot)
+    {
+        if (reservedCores < 0 || coresPerSlot < 1)
+            throw new IllegalArgumentException("Invalid core reservation or slot size");
+        if (cpus.size() < reservedCores + coresPerSlot)
+            throw new IllegalArgumentException(
+                    String.format("%d cores cannot accommodate %d reserved cores and a slot of %d",
+                            cpus.size(), reservedCores, coresPerSlot));
+
+        this.reserved = Collections.unmodifiableList(new ArrayList<>(cpus.subList(0, reservedCores)));
+
+        ArrayList<CpuSlot> slots = new ArrayList<>();
+        for (int start = reservedCores; start + coresPerSlot <= cpus.size(); start += coresPerSlot)
+            slots.add(new CpuSlot(slots.size(), cpus.subList(start, start + coresPerSlot)));
+
+        this.slots = Collections.unmodifiableList(slots);
+    }
+
+    /**
+     * @return the reserved cores as a slot, or null if no cores are reserved
+     */
+    public CpuSlot getReservedSlot()
+    {
+        return this.reserved.isEmpty() ? null : new CpuSlot(-1, this.reserved);
+    }
+
+    /**
+     * Split the cores currently online on this host.
+     *
+     * @param reservedCores the number of cores to keep for the executor
+     * @param coresPerSlot the number of cores given to each slot
+     * @return the slots
+     */
+    public static CpuSlots forHost(int reservedCores, int coresPerSlot)
+    {
+        List<Integer> cpus;
+        try
+        {
+            cpus = parseCpuList(new String(Files.readAllBytes(ONLINE_CPUS), StandardCharsets.US_ASCII));
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            log.warn("Failed to read online cores; assuming cores are numbered contiguously", e);
+
+            cpus = new ArrayList<>();
+            for (int i = 0; i < Runtime.getRuntime().availableProcessors(); i++)
+                cpus.add(i);
+        }
+
+        return new CpuSlots(cpus, reservedCores, coresPerSlot);
+    }
+
+    /**
+     * Parse a kernel CPU list, such as <code>0-3,6,8-9</code>.
+     *
+     * @param list the CPU list
+     * @return the individual cores in the list
+     */
+    public static List<Integer> parseCpuList(String list)
+    {
+        ArrayList<Integer> cpus = new ArrayList<>();
+
+        for (String range : list.trim().split(","))
+        {
+            if (range.isEmpty())
+                continue;
+
+            String[] bounds = range.split("-");
+            try
+            {
+                int first = Integer.parseInt(bounds[0]);
+                int last = (bounds.length > 1) ? Integer.parseInt(bounds[1]) : first;
+
+                for (int cpu = first; cpu <= last; cpu++)
+                    cpus.add(cpu);
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IllegalArgumentException(String.format("Malformed CPU list \"%s\"", list), e);
+            }
+        }
+
+        return cpus;
+    }
+
+    /**
+     * Format cores as a kernel CPU list.
+     *
+     * @param cpus the cores
+     * @return the CPU list
+     */
+    public static String formatCpuList(List<Integer> cpus)
+    {
+        return cpus.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    /**
+     * Confine every thread of the executor's JVM to the reserved cores. Threads
+     * created afterwards inherit the affinity of the thread creating them.
+     */
+    public void pinExecutor()
+    {
+        if (this.reserved.isEmpty())
+            return;
+
+        String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        String cpus = formatCpuList(this.reserved);
+
+        try
+        {
+            Process process = new ProcessBuilder("taskset", "-a", "-p", "-c", cpus, pid)
+                    .redirectErrorStream(true)
+                    .start();
+            StreamPump.consume(process.getInputStream());
+
+            if (!process.waitFor(TASKSET_TIMEOUT, TimeUnit.SECONDS) || process.exitValue() != 0)
+                log.warn("Failed to pin executor to cores {}", cpus);
+            else
+                log.info("Pinned executor to cores {}", cpus);
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to pin executor to cores " + cpus, e);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A set of cores dedicated to a single execution at a time.
+     *
+     * @author Samuel Coleman <samuel@seenet.ca>
+     * @since 1.0.0
+     */
+    @Getter
+    public static class CpuSlot
+    {
+        private final int index;
+        private final List<Integer> cpus;
+
+        public CpuSlot(int index, List<Integer> cpus)
+        {
+            this.index = index;
+            this.cpus = Collections.unmodifiableList(new ArrayList<>(cpus));
+        }
+
+        /**
+         * @return the slot's cores as a kernel CPU list
+         */
+        public String getCpuList()
+        {
+            return formatCpuList(this.cpus);
+        }
+    }
+}
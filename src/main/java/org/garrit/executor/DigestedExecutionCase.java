@@ -0,0 +1,55 @@
+package org.garrit.executor;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * An {@link IndexedExecutionCase execution case} carrying a digest of its
+ * output in place of the output itself. The output field holds only a short
+ * prefix of the output; the full output can be retrieved from the executor by
+ * submission ID and case index.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Getter
+@Setter
+public class DigestedExecutionCase extends IndexedExecutionCase
+{
+    /**
+     * The SHA-256 digest of the full output, in hexadecimal.
+     */
+    private String outputDigest;
+    /**
+     * The length of the full output in bytes.
+     */
+    private int outputLength;
+
+    public DigestedExecutionCase(String name, int caseIndex)
+    {
+        super(name, caseIndex);
+    }
+
+    /**
+     * Digest a case.
+     *
+     * @param executionCase the case, with its full output
+     * @param prefixLength the number of bytes of output to retain
+     * @return the digested case
+     */
+    public static DigestedExecutionCase digest(IndexedExecutionCase executionCase, int prefixLength)
+    {
+        byte[] output = (executionCase.getOutput() != null) ? executionCase.getOutput() : new byte[0];
+
+        DigestedExecutionCase digested = new DigestedExecutionCase(executionCase.getName(),
+                executionCase.getCaseIndex());
+        digested.setRuntime(executionCase.getRuntime());
+        digested.setOutput(Arrays.copyOf(output, Math.min(output.length, prefixLength)));
+        digested.setOutputDigest(Digests.hex(Digests.sha256().digest(output)));
+        digested.setOutputLength(output.length);
+
+        return digested;
+    }
+}
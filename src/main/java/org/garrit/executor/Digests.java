@@ -0,0 +1,57 @@
+package org.garrit.executor;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Helpers for computing content digests.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class Digests
+{
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * @return a new SHA-256 digest
+     */
+    public static MessageDigest sha256()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            /* Every Java platform is required to support SHA-256. */
+            throw new IllegalStateException("SHA-256 is unavailable", e);
+        }
+    }
+
+    /**
+     * @param value a value
+     * @return the big-endian bytes of the value
+     */
+    public static byte[] longBytes(long value)
+    {
+        return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+    }
+
+    /**
+     * @param bytes some bytes
+     * @return the bytes as lowercase hexadecimal
+     */
+    public static String hex(byte[] bytes)
+    {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+
+        return new String(hex);
+    }
+}
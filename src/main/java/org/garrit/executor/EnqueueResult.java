@@ -0,0 +1,30 @@
+package org.garrit.executor;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The outcome of enqueuing a single submission from a bulk request.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Getter
+@RequiredArgsConstructor
+public class EnqueueResult
+{
+    /**
+     * The line of the request on which the submission appeared, counting from
+     * 1.
+     */
+    private final int line;
+    /**
+     * The ID of the submission, or null if it could not be parsed.
+     */
+    private final Integer id;
+    private final boolean accepted;
+    /**
+     * Why the submission was rejected, or null if it was accepted.
+     */
+    private final String reason;
+}
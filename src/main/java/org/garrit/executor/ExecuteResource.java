@@ -1,15 +1,28 @@
 package org.garrit.executor;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
 import org.garrit.common.messages.RegisteredSubmission;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
 /**
  * Expose execution functionality via HTTP.
  *
@@ -21,25 +34,199 @@ import org.garrit.common.messages.RegisteredSubmission;
 @Consumes(MediaType.APPLICATION_JSON)
 public class ExecuteResource
 {
+    /**
+     * Media type of newline-delimited JSON, one submission per line.
+     */
+    public static final String NDJSON = "application/x-ndjson";
+    /**
+     * Media type of a zip archive of a submission's files.
+     */
+    public static final String ZIP = "application/zip";
+
     private final ExecutionManager manager;
+    private final ObjectReader submissionReader;
 
     public ExecuteResource(ExecutionManager manager)
+    {
+        this(manager, new ObjectMapper());
+    }
+
+    public ExecuteResource(ExecutionManager manager, ObjectMapper mapper)
     {
         this.manager = manager;
+        this.submissionReader = mapper.reader(RegisteredSubmission.class);
     }
 
     @POST
-    public Response executeSubmission(RegisteredSubmission submission)
+    public Response executeSubmission(RegisteredSubmission submission, @QueryParam("rejudge") boolean rejudge,
+            @QueryParam("failFast") Boolean failFast)
     {
+        if (submission == null || invalid(submission) != null)
+            return Response.status(Status.BAD_REQUEST).build();
+
+        SubmissionOptions options = new SubmissionOptions();
+        options.setRejudge(rejudge);
+        options.setFailFast(failFast);
+
+        try
+        {
+            this.manager.enqueue(submission, options);
+        }
+        catch (UnavailableExecutorException e)
+        {
+            return Response.status(Status.NOT_IMPLEMENTED).build();
+        }
+
+        return Response.status(Status.ACCEPTED).build();
+    }
+
+    /**
+     * Enqueue a submission whose files are given as a zip archive, with the
+     * rest of the submission given as query parameters. The archive is
+     * streamed to disk as it arrives rather than read into memory.
+     * 
+     * @param body the archive
+     * @param id the submission's ID
+     * @param language the submission's language
+     * @param problem the submission's problem
+     * @param entryPoint the submission's entry point
+     * @param rejudge whether the submission is a deliberate rejudge
+     * @param failFast whether the submission stops at its first failed case,
+     *            or null to follow its problem's policy
+     * @return the response
+     */
+    @POST
+    @Consumes(ZIP)
+    public Response executeArchive(InputStream body, @QueryParam("id") Integer id,
+            @QueryParam("language") String language, @QueryParam("problem") String problem,
+            @QueryParam("entryPoint") String entryPoint, @QueryParam("rejudge") boolean rejudge,
+            @QueryParam("failFast") Boolean failFast)
+    {
+        if (id == null || language == null || problem == null)
+            return Response.status(Status.BAD_REQUEST).build();
+
+        RegisteredSubmission submission = new RegisteredSubmission();
+        submission.setId(id);
+        submission.setLanguage(language);
+        submission.setProblem(problem);
+        submission.setEntryPoint(entryPoint);
+
+        /* Don't bother spooling what we can't execute. */
+        if (!ExecutorFactory.executorExists(submission))
+            return Response.status(Status.NOT_IMPLEMENTED).build();
+
         try
         {
-            this.manager.enqueue(submission);
+            submission.setFiles(this.manager.getArchiveSpool().spool(body));
+        }
+        catch (ArchiveLimitException e)
+        {
+            return Response.status(Status.REQUEST_ENTITY_TOO_LARGE).build();
+        }
+        catch (IOException e)
+        {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+
+        SubmissionOptions options = new SubmissionOptions();
+        options.setRejudge(rejudge);
+        options.setFailFast(failFast);
+
+        try
+        {
+            this.manager.enqueue(submission, options);
         }
         catch (UnavailableExecutorException e)
         {
+            ArchiveSpool.discard(submission);
             return Response.status(Status.NOT_IMPLEMENTED).build();
         }
 
         return Response.status(Status.ACCEPTED).build();
     }
+
+    /**
+     * Enqueue a stream of submissions given as newline-delimited JSON. Each
+     * submission is enqueued as soon as its line has been read, so the request
+     * body is never held in memory as a whole. A malformed or unacceptable
+     * line is rejected without affecting the rest.
+     * 
+     * @param body the request body
+     * @param rejudge whether the submissions are deliberate rejudges
+     * @param failFast whether the submissions stop at their first failed
+     *            case, or null to follow each problem's policy
+     * @return the outcome for each non-blank line
+     * @throws IOException if the request body cannot be read
+     */
+    @POST
+    @Consumes(NDJSON)
+    public List<EnqueueResult> executeSubmissions(InputStream body, @QueryParam("rejudge") boolean rejudge,
+            @QueryParam("failFast") Boolean failFast) throws IOException
+    {
+        ArrayList<EnqueueResult> results = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null)
+        {
+            lineNumber++;
+            if (line.trim().isEmpty())
+                continue;
+
+            RegisteredSubmission submission;
+            try
+            {
+                submission = this.submissionReader.readValue(line);
+            }
+            catch (JsonProcessingException e)
+            {
+                results.add(new EnqueueResult(lineNumber, null, false, "Malformed submission"));
+                continue;
+            }
+
+            String invalid = invalid(submission);
+            if (invalid != null)
+            {
+                results.add(new EnqueueResult(lineNumber, submission.getId(), false, invalid));
+                continue;
+            }
+
+            SubmissionOptions options = new SubmissionOptions();
+            options.setRejudge(rejudge);
+            options.setFailFast(failFast);
+
+            try
+            {
+                this.manager.enqueue(submission, options);
+                results.add(new EnqueueResult(lineNumber, submission.getId(), true, null));
+            }
+            catch (UnavailableExecutorException e)
+            {
+                results.add(new EnqueueResult(lineNumber, submission.getId(), false, e.getMessage()));
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Check that a submission has everything needed to execute it.
+     *
+     * @param submission the submission
+     * @return why the submission can't be executed, or null if it can
+     */
+    static String invalid(RegisteredSubmission submission)
+    {
+        if (submission.getLanguage() == null)
+            return "Missing language";
+        if (submission.getProblem() == null)
+            return "Missing problem";
+        if (submission.getFiles() == null || submission.getFiles().isEmpty())
+            return "Missing files";
+        if (submission.getFiles().contains(null))
+            return "Missing file";
+
+        return null;
+    }
 }
\ No newline at end of file
@@ -2,12 +2,19 @@ package org.garrit.executor;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 
 import org.garrit.common.messages.SubmissionFile;
+import org.garrit.executor.CpuSlots.CpuSlot;
 
 /**
  * An environment in which submission can be executed.
@@ -17,6 +24,14 @@ import org.garrit.common.messages.SubmissionFile;
  */
 public abstract class ExecutionEnvironment implements Closeable
 {
+    /**
+     * The factor applied to every timeout, so that limits tuned on a
+     * reference machine hold on a slower or faster host.
+     */
+    @Getter
+    @Setter
+    private double timeScale = 1.0;
+
     /**
      * Unpack a collection of submission files into the environment. An
      * implementation is responsible for destroying any files created within the
@@ -71,6 +86,114 @@ public abstract class ExecutionEnvironment implements Closeable
     public abstract EnvironmentResponse execute(List<String> command, String input, long timeout)
             throws IOException;
 
+    /**
+     * Execute a command within the environment, feeding it input straight
+     * from a buffer, such as a {@link PackedProblem.PackedCase packed case}'s
+     * slice of its pack, via <code>stdin</code>. Environments which can feed
+     * the buffer to the process as it stands avoid copying it; this one
+     * decodes it as UTF-8.
+     * 
+     * @param command the command to execute
+     * @param input stdin for the program being executed, which is consumed,
+     *            or null
+     * @param timeout the timeout for execution in seconds
+     * @return the output of the command
+     * @throws IOException if a failure occurs while executing the command
+     */
+    public EnvironmentResponse executeWithInput(List<String> command, ByteBuffer input, long timeout)
+            throws IOException
+    {
+        return this.execute(command, (input != null) ? StandardCharsets.UTF_8.decode(input).toString() : null,
+                timeout);
+    }
+
+    /**
+     * Execute a command within the environment, feeding it a file already
+     * present in the environment via <code>stdin</code>.
+     * 
+     * @param command the command to execute
+     * @param input the path of the input file within the environment
+     * @param timeout the timeout for execution in seconds
+     * @return the output of the command
+     * @throws IOException if a failure occurs while executing the command
+     */
+    public EnvironmentResponse executeWithInputFile(List<String> command, Path input, long timeout)
+            throws IOException
+    {
+        ArrayList<String> redirected = new ArrayList<>(command.size() + 4);
+        redirected.addAll(Arrays.asList("/bin/sh", "-c", "exec \"$@\" < \"$0\"", input.toString()));
+        redirected.addAll(command);
+
+        return this.execute(redirected, null, timeout);
+    }
+
+    /**
+     * Scale a timeout by the environment's {@link #getTimeScale() time
+     * scale}, rounding up to whole seconds.
+     * 
+     * @param timeout the timeout in seconds
+     * @return the scaled timeout in seconds
+     */
+    protected long scaleTimeout(long timeout)
+    {
+        return (long) Math.ceil(timeout * this.timeScale);
+    }
+
+    /**
+     * Confine subsequent commands to a set of cores. Environments which cannot
+     * do so ignore this.
+     * 
+     * @param slot the cores, or null to allow commands to run on any core
+     */
+    public void setSlot(CpuSlot slot)
+    {
+    }
+
+    /**
+     * Expose a directory of problem data read-only within the environment.
+     * Environments which cannot do so return null, in which case case input
+     * must be given directly to each command.
+     * 
+     * @param data the directory on the host
+     * @return the path of the directory within the environment, or null
+     * @throws IOException if the directory cannot be exposed
+     */
+    public Path mountProblemData(Path data) throws IOException
+    {
+        return this.mountReadOnly(data, "problem");
+    }
+
+    /**
+     * Expose a directory on the host read-only within the environment.
+     * Environments which cannot do so return null.
+     * 
+     * @param directory the directory on the host
+     * @param name a name for the directory, unique within the environment
+     * @return the path of the directory within the environment, or null
+     * @throws IOException if the directory cannot be exposed
+     */
+    public Path mountReadOnly(Path directory, String name) throws IOException
+    {
+        return null;
+    }
+
+    /**
+     * Read back files created within the environment, such as those produced
+     * by compiling a submission, so that they can be
+     * {@link #unpack(List) unpacked} into another environment. Only regular
+     * files are read; links are ignored. Environments which cannot do so
+     * return null.
+     * 
+     * @param directory the path of a directory within the environment
+     * @param suffix the suffix of the names of the files to read
+     * @return the files, named relative to the directory, or null
+     * @throws IOException if the files cannot be read
+     */
+    public List<SubmissionFile> retrieve(Path directory, String suffix) throws IOException
+    {
+        return null;
+    }
+
     /**
      * The response to executing a command in the environment.
      *
@@ -2,6 +2,8 @@ package org.garrit.executor;
 
 import java.io.IOException;
 
+import org.garrit.executor.CpuSlots.CpuSlot;
+
 /**
  * Provide acess to {@link ExecutionEnvironment execution environments}.
  *
@@ -10,11 +12,63 @@ import java.io.IOException;
  */
 public class ExecutionEnvironmentFactory
 {
+    private static volatile Provider provider = LXCEnvironment::new;
+
     /**
      * @return a new execution environment
      */
     public static ExecutionEnvironment getExecutionEnvironment() throws IOException
     {
-        return new LXCEnvironment();
+        return provider.create(null);
+    }
+
+    /**
+     * @param slot the cores to which the environment should be confined, or
+     *            null to allow it to run on any core
+     * @return a new execution environment
+     */
+    public static ExecutionEnvironment getExecutionEnvironment(CpuSlot slot) throws IOException
+    {
+        return provider.create(slot);
+    }
+
+    /**
+     * Set how environments are created from now on. Environments are
+     * {@link LXCEnvironment LXC environments} unless set otherwise.
+     * 
+     * @param environmentProvider the means of creating environments
+     */
+    public static void configure(Provider environmentProvider)
+    {
+        provider = environmentProvider;
+    }
+
+    /**
+     * Release the resources of any environments which were never properly
+     * closed, such as those left behind by a previous crash.
+     * 
+     * @throws IOException if orphaned environments could not be enumerated
+     */
+    public static void reapOrphanedEnvironments() throws IOException
+    {
+        LXCEnvironment.reapOrphans();
+    }
+
+    /**
+     * A means of creating environments.
+     *
+     * @author Samuel Coleman <samuel@seenet.ca>
+     * @since 1.0.0
+     */
+    @FunctionalInterface
+    public static interface Provider
+    {
+        /**
+         * @param slot the cores to which the environment should be confined,
+         *            or null to allow it to run on any core
+         * @return a new execution environment
+         * @throws IOException if the environment cannot be created
+         */
+        ExecutionEnvironment create(CpuSlot slot) throws IOException;
     }
-}
\ No newline at end of file
+}
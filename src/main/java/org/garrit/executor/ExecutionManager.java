@@ -4,30 +4,48 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
-
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import org.apache.http.HttpEntity;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.ByteArrayEntity;
-import org.apache.http.impl.client.HttpClients;
-import org.garrit.common.Problem;
 import org.garrit.common.ProblemCase;
-import org.garrit.common.Problems;
 import org.garrit.common.messages.ErrorSubmission;
 import org.garrit.common.messages.ErrorType;
 import org.garrit.common.messages.Execution;
 import org.garrit.common.messages.ExecutionCase;
 import org.garrit.common.messages.RegisteredSubmission;
+import org.garrit.common.messages.SubmissionFile;
 import org.garrit.common.messages.statuses.CapabilityType;
 import org.garrit.common.messages.statuses.ExecutorStatus;
+import org.garrit.executor.CpuSlots.CpuSlot;
+import org.garrit.executor.SubmissionTimeline.Stage;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Handle execution of submissions.
@@ -38,18 +56,210 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 @Slf4j
 public class ExecutionManager implements ExecutorStatus, Closeable
 {
+    /**
+     * The number of recent bulk rejudges whose progress is retained.
+     */
+    private static final int MAX_BATCHES = 64;
+    /**
+     * The weight given to each new execution time in the moving average.
+     */
+    private static final double EXECUTION_TIME_WEIGHT = 0.2;
+    /**
+     * The number of recently used languages advertised as warm.
+     */
+    private static final int WARM_LANGUAGES = 16;
+
     /**
      * The path containing problem definitions.
      */
     private final Path problems;
-    private final ExecutionThread executionThread;
-    private final ReportThread reportThread;
-    private final ErrorThread errorThread;
+    /**
+     * Timelines of recently seen submissions.
+     */
+    private final TimelineStore timelines;
+    /**
+     * Whether or not to attach timelines to outgoing executions.
+     */
+    private final boolean attachTimelines;
+    /**
+     * Results of previous executions, or null if results are not cached.
+     */
+    private final ResultCache resultCache;
+    /**
+     * Files produced by previous compilations, or null if compilations are
+     * not cached.
+     */
+    private final CompilationCache compilationCache;
+    /**
+     * Full outputs of recent cases, or null if outputs are sent to the
+     * negotiator in full.
+     */
+    private final OutputStore outputStore;
+    /**
+     * The number of bytes of each output sent to the negotiator when outputs
+     * are digested.
+     */
+    private final int outputPrefixLength;
+    /**
+     * Recently loaded problem definitions.
+     */
+    private final ProblemCache problemCache;
+    /**
+     * Case inputs laid out for bind-mounting into environments, or null if
+     * inputs are passed to each execution directly.
+     */
+    private final ProblemDataStore problemData;
+    /**
+     * Problems whose submissions stop at their first failed case by default.
+     */
+    private final Set<String> failFastProblems;
+    /**
+     * The benchmark run at startup to measure the host's speed, or null if
+     * the host is not calibrated.
+     */
+    private final Calibration calibration;
+    /**
+     * Whether to scale time limits and runtimes to the reference machine.
+     */
+    private final boolean normaliseTimes;
+    /**
+     * The host's speed relative to the reference machine.
+     */
+    private volatile double speedFactor = 1.0;
+    /**
+     * Pulls work from the negotiator, or null if work is pushed to us.
+     */
+    private final WorkPoller workPoller;
+    /**
+     * The number of submissions currently being executed.
+     */
+    private final AtomicInteger running = new AtomicInteger();
+    /**
+     * The number of submissions either queued or being executed. Taking a
+     * submission from the queue moves it from one to the other without
+     * changing this count, so free slots are never over-reported while a
+     * submission is between the two.
+     */
+    private final AtomicInteger occupied = new AtomicInteger();
+    /**
+     * Notified whenever a worker finishes a submission.
+     */
+    private final Object slotFreed = new Object();
+    /**
+     * A moving average of the time taken to execute a submission in
+     * milliseconds, or 0 if nothing has been executed yet.
+     */
+    private volatile double averageExecutionTime = 0;
+    /**
+     * The names of the available problems.
+     */
+    private final ProblemListing problemListing;
+    /**
+     * Where uploaded submission archives are unpacked.
+     */
+    private final ArchiveSpool archiveSpool;
+    /**
+     * The size in bytes above which queued submissions are spilled to the
+     * archive spool, or 0 to keep them in memory.
+     */
+    private final long spillThreshold;
+    /**
+     * Languages whose toolchains have recently run.
+     */
+    private final WarmSet warmLanguages;
+    /**
+     * Incremented whenever the submission queue changes.
+     */
+    private final AtomicLong queueVersion = new AtomicLong();
+    /**
+     * The IDs of queued submissions as of the last request for them.
+     */
+    private volatile QueueSnapshot queueSnapshot = null;
+    /**
+     * Recent bulk rejudges, keyed by batch ID.
+     */
+    private final LinkedHashMap<String, RejudgeBatch> batches = new LinkedHashMap<String, RejudgeBatch>()
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RejudgeBatch> eldest)
+        {
+            return this.size() > MAX_BATCHES;
+        }
+    };
+    /**
+     * The client through which results and errors are reported to the
+     * negotiator.
+     */
+    private final NegotiatorClient negotiatorClient;
+    /**
+     * The division of cores between the executor and executions, or null if
+     * executions are not pinned to cores.
+     */
+    private final CpuSlots cpuSlots;
+    /**
+     * The number of submissions to execute concurrently.
+     */
+    private final int workers;
+    /**
+     * The number of threads reporting each of results and errors.
+     */
+    private final int reporters;
+    /**
+     * Whether submissions are prepared, compiled and evaluated by separate
+     * pools of threads, rather than each worker taking a submission through
+     * every stage.
+     */
+    private final boolean pipelined;
+    /**
+     * The number of threads preparing environments when pipelined.
+     */
+    private final int preparers;
+    /**
+     * The number of threads compiling submissions when pipelined.
+     */
+    private final int compilers;
+    /**
+     * The cores on which submissions are prepared and compiled when pipelined,
+     * or null if they may run on any core.
+     */
+    private final CpuSlot compileSlot;
+    /**
+     * Submissions waiting to be prepared, or to be executed outright if the
+     * stages are not pipelined.
+     */
+    private final PipelineStage<QueuedSubmission> intake;
+    /**
+     * Prepared submissions waiting to be compiled, or null if the stages are
+     * not pipelined.
+     */
+    private final PipelineStage<PreparedSubmission> compileStage;
+    /**
+     * Compiled submissions waiting to be evaluated, or null if the stages are
+     * not pipelined.
+     */
+    private final PipelineStage<PreparedSubmission> evaluateStage;
+    /**
+     * Executions waiting to be reported.
+     */
+    private final PipelineStage<Execution> reportStage;
+    /**
+     * Every stage, keyed by name, in the order submissions pass through them.
+     */
+    private final LinkedHashMap<String, PipelineStage<?>> stages = new LinkedHashMap<>();
+    /**
+     * The interval in seconds between sweeps for orphaned environments, or 0
+     * to sweep only at startup.
+     */
+    private final long janitorInterval;
+    private final ArrayList<Thread> threads = new ArrayList<>();
+    private ScheduledExecutorService janitor;
 
     /**
      * Submissions lined up and waiting to be executed.
      */
-    LinkedBlockingQueue<RegisteredSubmission> submissionQueue = new LinkedBlockingQueue<>();
+    LinkedBlockingQueue<QueuedSubmission> submissionQueue = new LinkedBlockingQueue<>();
     /**
      * Submissions which have been executed and need to be sent back to the
      * negotiator.
@@ -62,10 +272,90 @@ public class ExecutionManager implements ExecutorStatus, Closeable
 
     public ExecutionManager(Path problems, URI negotiator)
     {
-        this.problems = problems;
-        this.executionThread = new ExecutionThread();
-        this.reportThread = new ReportThread(negotiator);
-        this.errorThread = new ErrorThread(negotiator);
+        this(defaultConfiguration(problems, negotiator));
+    }
+
+    public ExecutionManager(ExecutorConfiguration config)
+    {
+        this.problems = config.getProblems();
+        this.timelines = new TimelineStore(config.getTraceCapacity());
+        this.attachTimelines = config.isAttachTimelines();
+        this.resultCache = (config.getResultCacheSize() > 0) ? new ResultCache(config.getResultCacheSize()) : null;
+        this.compilationCache = (config.getCompilationCacheSize() > 0)
+                ? new CompilationCache(config.getCompilationCacheSize())
+                : null;
+        this.problemCache = new ProblemCache(this.problems, config.getProblemCacheSize());
+        this.problemListing = new ProblemListing(this.problems);
+        this.archiveSpool = new ArchiveSpool(
+                (config.getArchiveSpool() != null)
+                        ? config.getArchiveSpool()
+                        : Paths.get(System.getProperty("java.io.tmpdir"), ArchiveSpool.DEFAULT_NAME),
+                config.getArchiveMaxBytes(), config.getArchiveMaxEntries());
+        this.spillThreshold = config.getSpillThreshold();
+        this.warmLanguages = new WarmSet(WARM_LANGUAGES, config.getWarmTtl());
+        this.problemData = (config.getProblemData() != null) ? new ProblemDataStore(config.getProblemData()) : null;
+        this.failFastProblems = new HashSet<>(config.getFailFastProblems());
+        this.outputStore = config.isOutputDigests()
+                ? new OutputStore(config.getOutputStoreSize(), config.getOutputTtl())
+                : null;
+        this.outputPrefixLength = config.getOutputPrefixLength();
+        this.negotiatorClient = new NegotiatorClient(config.getNegotiator(), config.getReportCompression(),
+                config.getReportCompressionThreshold(), 2 * config.getReporters() + (config.isPullWork() ? 1 : 0));
+        if (config.isCpuPinning())
+        {
+            this.cpuSlots = CpuSlots.forHost(config.getReservedCores(), config.getCoresPerSlot());
+            this.workers = this.cpuSlots.getSlots().size();
+        }
+        else
+        {
+            this.cpuSlots = null;
+            this.workers = config.getWorkers();
+        }
+
+        this.reporters = config.getReporters();
+        this.pipelined = config.isPipelined();
+        this.preparers = this.pipelined ? Math.max(1, config.getPreparers()) : 0;
+        this.compilers = this.pipelined ? Math.max(1, config.getCompilers()) : 0;
+        /* Compiling on the executor's own cores keeps it from disturbing the
+         * timing of whatever is being evaluated alongside it. */
+        this.compileSlot = (this.pipelined && this.cpuSlots != null) ? this.cpuSlots.getReservedSlot() : null;
+
+        if (this.pipelined)
+        {
+            this.intake = new PipelineStage<>(this.preparers, this.submissionQueue);
+            this.compileStage = new PipelineStage<>(this.compilers, new LinkedBlockingQueue<>(this.compilers));
+            this.evaluateStage = new PipelineStage<>(this.workers, new LinkedBlockingQueue<>(this.workers));
+            this.stages.put("prepare", this.intake);
+            this.stages.put("compile", this.compileStage);
+            this.stages.put("evaluate", this.evaluateStage);
+        }
+        else
+        {
+            this.intake = new PipelineStage<>(this.workers, this.submissionQueue);
+            this.compileStage = null;
+            this.evaluateStage = null;
+            this.stages.put("execute", this.intake);
+        }
+
+        this.reportStage = new PipelineStage<>(this.reporters, this.outgoingQueue);
+        this.stages.put("report", this.reportStage);
+
+        this.janitorInterval = config.getJanitorInterval();
+        this.calibration = config.isCalibrate()
+                ? new Calibration(config.getCalibrationReference(), config.getCalibrationRuns())
+                : null;
+        this.normaliseTimes = config.isNormaliseTimes();
+        this.workPoller = config.isPullWork()
+                ? new WorkPoller(this, this.negotiatorClient, config.getName(), config.getPollTimeout())
+                : null;
+    }
+
+    private static ExecutorConfiguration defaultConfiguration(Path problems, URI negotiator)
+    {
+        ExecutorConfiguration config = new ExecutorConfiguration();
+        config.setProblems(problems);
+        config.setNegotiator(negotiator);
+        return config;
     }
 
     /**
@@ -74,13 +364,320 @@ public class ExecutionManager implements ExecutorStatus, Closeable
      * @param submission the submission
      */
     public void enqueue(RegisteredSubmission submission) throws UnavailableExecutorException
+    {
+        this.enqueue(submission, new SubmissionOptions());
+    }
+
+    /**
+     * @return the number of further submissions which could start executing
+     *         immediately
+     */
+    public int getFreeSlots()
+    {
+        return Math.max(0, this.getCapacity() - this.occupied.get());
+    }
+
+    /**
+     * @return the number of submissions which can be in progress at once:
+     *         one for each thread of every stage before reporting, and one for
+     *         each place in the hand-off queues between those stages
+     */
+    private int getCapacity()
+    {
+        int handOff = this.pipelined ? this.compilers + this.workers : 0;
+        return this.workers + this.preparers + this.compilers + handOff;
+    }
+
+    /**
+     * @return the occupancy of each stage, keyed by name, in the order
+     *         submissions pass through them
+     */
+    public Map<String, PipelineStage<?>> getStages()
+    {
+        return Collections.unmodifiableMap(this.stages);
+    }
+
+    /**
+     * @return the problems loaded in memory, most recently used first, which
+     *         this executor can judge without reading from disk
+     */
+    public List<String> getWarmProblems()
+    {
+        return this.problemCache.names();
+    }
+
+    /**
+     * @return the languages whose toolchains have recently run, most recently
+     *         used first
+     */
+    public List<String> getWarmLanguages()
+    {
+        return this.warmLanguages.get();
+    }
+
+    /**
+     * @return the number of submissions currently being executed
+     */
+    public int getRunning()
+    {
+        return this.running.get();
+    }
+
+    /**
+     * Estimate how long a submission enqueued now would wait before starting
+     * to execute, from the number of submissions ahead of it and the recent
+     * average execution time.
+     * 
+     * @return the estimated wait in milliseconds
+     */
+    public long getEstimatedWait()
+    {
+        long ahead = this.occupied.get() - this.getCapacity() + 1;
+        if (ahead <= 0)
+            return 0;
+
+        return Math.round(Math.ceil((double) ahead / this.getCapacity()) * this.averageExecutionTime);
+    }
+
+    private synchronized void recordExecutionTime(long milliseconds)
+    {
+        this.averageExecutionTime = (this.averageExecutionTime == 0)
+                ? milliseconds
+                : EXECUTION_TIME_WEIGHT * milliseconds + (1 - EXECUTION_TIME_WEIGHT) * this.averageExecutionTime;
+    }
+
+    /**
+     * Wait until a slot is free.
+     * 
+     * @param timeout the longest time to wait in milliseconds
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void awaitFreeSlot(long timeout) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + timeout;
+
+        synchronized (this.slotFreed)
+        {
+            long remaining;
+            while (this.getFreeSlots() <= 0 && (remaining = deadline - System.currentTimeMillis()) > 0)
+                this.slotFreed.wait(remaining);
+        }
+    }
+
+    /**
+     * Report a submission which cannot be executed here back to the
+     * negotiator as an error, without enqueuing it.
+     * 
+     * @param submission the submission
+     * @param message the reason for rejection
+     */
+    void reject(RegisteredSubmission submission, String message)
+    {
+        ErrorSubmission<RegisteredSubmission> error = new ErrorSubmission<>();
+        error.setId(submission.getId());
+        error.setStage(CapabilityType.EXECUTOR);
+        error.setSubmission(submission);
+        error.setType(ErrorType.E_INTERNAL);
+        error.setMessage(message);
+
+        this.timelines.start(submission.getId()).record(Stage.FAILED, message);
+        this.errorQueue.offer(error);
+    }
+
+    /**
+     * Determine whether a submission should stop at its first failed case.
+     * The submission's own options take precedence over its problem's policy.
+     * 
+     * @param queued the submission
+     * @return whether to fail fast
+     */
+    private boolean isFailFast(QueuedSubmission queued)
+    {
+        Boolean requested = queued.getOptions().getFailFast();
+        if (requested != null)
+            return requested;
+
+        return this.failFastProblems.contains(queued.getSubmission().getProblem());
+    }
+
+    /**
+     * Enqueue a submission for execution.
+     * 
+     * @param submission the submission
+     * @param options instructions for executing the submission
+     */
+    public void enqueue(RegisteredSubmission submission, SubmissionOptions options)
+            throws UnavailableExecutorException
     {
         log.debug("Enqueuing submission {}", submission);
 
         if (!ExecutorFactory.executorExists(submission))
             throw new UnavailableExecutorException("No executor available for language");
 
-        this.submissionQueue.add(submission);
+        /* A deep backlog of large submissions would otherwise pin their files
+         * on the heap until they're executed. */
+        if (this.spillThreshold > 0 && ArchiveSpool.inlineSize(submission.getFiles()) > this.spillThreshold)
+        {
+            try
+            {
+                submission.setFiles(this.archiveSpool.spill(submission.getFiles()));
+            }
+            catch (IOException e)
+            {
+                log.warn("Failed to spill submission " + submission.getId() + "; keeping it in memory", e);
+            }
+        }
+
+        SubmissionTimeline timeline = this.timelines.start(submission.getId());
+        timeline.record(Stage.ENQUEUED);
+
+        this.occupied.incrementAndGet();
+        this.submissionQueue.add(new QueuedSubmission(submission, timeline, options));
+        this.queueVersion.incrementAndGet();
+    }
+
+    /**
+     * Rejudge many submissions against the same problem. The problem is
+     * loaded once for the whole batch, byte-identical submissions are
+     * executed only once, and the rest are spread across every worker.
+     * Submissions whose files and language have been compiled before, by
+     * this batch or earlier, reuse the compilation if compilations are
+     * cached.
+     * Submissions for a different problem or an unavailable language are
+     * rejected, and listed with the reason in the batch.
+     * 
+     * @param problem the name of the problem
+     * @param submissions the submissions
+     * @return the batch, through which progress can be followed
+     * @throws IOException if the problem cannot be loaded
+     */
+    public RejudgeBatch rejudge(String problem, List<RegisteredSubmission> submissions) throws IOException
+    {
+        String version = ProblemVersions.version(this.problems, problem);
+        this.problemCache.get(problem, version);
+
+        HashMap<String, RegisteredSubmission> executed = new HashMap<>();
+        HashMap<Integer, List<RegisteredSubmission>> duplicates = new HashMap<>();
+        LinkedHashMap<Integer, String> rejections = new LinkedHashMap<>();
+
+        for (RegisteredSubmission submission : submissions)
+        {
+            if (!problem.equals(submission.getProblem()))
+            {
+                rejections.put(submission.getId(), "Submission is for problem " + submission.getProblem());
+                continue;
+            }
+
+            if (!ExecutorFactory.executorExists(submission))
+            {
+                rejections.put(submission.getId(), "No executor available for language " + submission.getLanguage());
+                continue;
+            }
+
+            RegisteredSubmission original = executed.putIfAbsent(ResultCache.key(submission, version), submission);
+            if (original != null)
+                duplicates.computeIfAbsent(original.getId(), id -> new ArrayList<>()).add(submission);
+        }
+
+        RejudgeBatch batch = new RejudgeBatch(UUID.randomUUID().toString(), problem, submissions.size(), rejections,
+                duplicates);
+
+        synchronized (this.batches)
+        {
+            this.batches.put(batch.getId(), batch);
+        }
+
+        log.info("Rejudging {} submissions for problem {} as {} executions",
+                submissions.size() - rejections.size(), problem, executed.size());
+
+        for (RegisteredSubmission submission : executed.values())
+        {
+            SubmissionOptions options = new SubmissionOptions();
+            options.setRejudge(true);
+            options.setBatch(batch);
+
+            try
+            {
+                this.enqueue(submission, options);
+            }
+            catch (UnavailableExecutorException e)
+            {
+                /* Unreachable: languages were checked above, and executors
+                 * are never unregistered. */
+                log.error("Executor disappeared during rejudge", e);
+            }
+        }
+
+        return batch;
+    }
+
+    /**
+     * @param id the ID of a bulk rejudge
+     * @return the rejudge, or null if it is unknown or no longer retained
+     */
+    public RejudgeBatch getBatch(String id)
+    {
+        synchronized (this.batches)
+        {
+            return this.batches.get(id);
+        }
+    }
+
+    /**
+     * @return timelines of recently seen submissions
+     */
+    @JsonIgnore
+    public TimelineStore getTimelines()
+    {
+        return this.timelines;
+    }
+
+    /**
+     * @return full outputs of recent cases, or null if outputs are sent to
+     *         the negotiator in full
+     */
+    @JsonIgnore
+    public OutputStore getOutputStore()
+    {
+        return this.outputStore;
+    }
+
+    /**
+     * @return results of previous executions, or null if results are not
+     *         cached
+     */
+    @JsonIgnore
+    public ResultCache getResultCache()
+    {
+        return this.resultCache;
+    }
+
+    /**
+     * @return files produced by previous compilations, or null if
+     *         compilations are not cached
+     */
+    @JsonIgnore
+    public CompilationCache getCompilationCache()
+    {
+        return this.compilationCache;
+    }
+
+    /**
+     * @return where uploaded submission archives are unpacked
+     */
+    @JsonIgnore
+    public ArchiveSpool getArchiveSpool()
+    {
+        return this.archiveSpool;
+    }
+
+    /**
+     * @return the host's speed relative to the reference machine: greater
+     *         than 1 if faster, less than 1 if slower
+     */
+    public double getSpeedFactor()
+    {
+        return this.speedFactor;
     }
 
     @Override
@@ -94,7 +691,7 @@ public class ExecutionManager implements ExecutorStatus, Closeable
     {
         try
         {
-            return Problems.availableProblems(this.problems);
+            return this.problemListing.get();
         }
         catch (IOException e)
         {
@@ -103,48 +700,740 @@ public class ExecutionManager implements ExecutorStatus, Closeable
         }
     }
 
-    @Override
-    public ArrayList<Integer> getQueued()
+    /**
+     * @return the IDs of queued submissions, in queue order; the list is a
+     *         snapshot shared between callers, so it cannot be modified
+     */
+    @Override
+    public ArrayList<Integer> getQueued()
+    {
+        /* The snapshot is only rebuilt once the queue has changed, so frequent
+         * status polls of a quiet executor cost nothing. Read the version
+         * first: a change during the rebuild leaves the snapshot stale. */
+        long version = this.queueVersion.get();
+        QueueSnapshot snapshot = this.queueSnapshot;
+        if (snapshot != null && snapshot.version == version)
+            return snapshot.ids;
+
+        ArrayList<QueuedSubmission> frozenQueue = new ArrayList<>(this.submissionQueue);
+        ArrayList<Integer> queuedIds = new ArrayList<>(frozenQueue.size());
+
+        frozenQueue.forEach(queued -> queuedIds.add(queued.getSubmission().getId()));
+
+        QueuedIds ids = new QueuedIds(queuedIds);
+        this.queueSnapshot = new QueueSnapshot(version, ids);
+        return ids;
+    }
+
+    /**
+     * Start processing queued submissions. Worker and reporting threads are
+     * created in the current {@link Threads#getMode() thread mode}.
+     */
+    public synchronized void start()
+    {
+        log.info("Starting execution manager with {} workers on {} threads", this.workers, Threads.getMode());
+        if (this.pipelined)
+            log.info("Pipelining with {} preparers and {} compilers", this.preparers, this.compilers);
+
+        /* Pin before creating any threads so that they inherit the executor's
+         * reserved cores. */
+        if (this.cpuSlots != null)
+            this.cpuSlots.pinExecutor();
+
+        /* Every submission in progress holds an environment whose streams
+         * need draining, whichever stage it is in. */
+        StreamPump.configure(this.getCapacity());
+
+        /* Anything left behind by a previous run is fair game before we start
+         * creating environments of our own. */
+        reapOrphanedEnvironments();
+        this.problemListing.watch();
+
+        if (this.calibration != null)
+        {
+            try
+            {
+                this.speedFactor = this.calibration.calibrate(
+                        (this.cpuSlots != null) ? this.cpuSlots.getSlots().get(0) : null);
+            }
+            catch (IOException e)
+            {
+                log.warn("Failed to calibrate host; assuming reference speed", e);
+            }
+        }
+
+        if (this.janitorInterval > 0)
+        {
+            this.janitor = Executors.newSingleThreadScheduledExecutor(Threads.factory("Environment janitor"));
+            this.janitor.scheduleWithFixedDelay(ExecutionManager::reapOrphanedEnvironments,
+                    this.janitorInterval, this.janitorInterval, TimeUnit.SECONDS);
+        }
+
+        ThreadFactory preparationThreads = Threads.factory("Preparation thread");
+        ThreadFactory compilationThreads = Threads.factory("Compilation thread");
+        ThreadFactory executionThreads = Threads.factory("Execution thread");
+        ThreadFactory reportThreads = Threads.factory("Negotiator reporting thread");
+        ThreadFactory errorThreads = Threads.factory("Error reporting thread");
+
+        for (int i = 0; i < this.preparers; i++)
+            this.threads.add(preparationThreads.newThread(new PreparationWorker()));
+
+        for (int i = 0; i < this.compilers; i++)
+            this.threads.add(compilationThreads.newThread(new CompilationWorker()));
+
+        for (int i = 0; i < this.workers; i++)
+        {
+            CpuSlot slot = (this.cpuSlots != null) ? this.cpuSlots.getSlots().get(i) : null;
+            this.threads.add(executionThreads.newThread(new ExecutionWorker(slot)));
+        }
+
+        for (int i = 0; i < this.reporters; i++)
+        {
+            this.threads.add(reportThreads.newThread(new ReportWorker()));
+            this.threads.add(errorThreads.newThread(new ErrorWorker()));
+        }
+
+        if (this.workPoller != null)
+            this.threads.add(Threads.factory("Work polling thread").newThread(this.workPoller));
+
+        this.threads.forEach(Thread::start);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        log.info("Closing execution manager");
+
+        synchronized (this)
+        {
+            this.threads.forEach(Thread::interrupt);
+
+            if (this.janitor != null)
+                this.janitor.shutdownNow();
+        }
+
+        /* Tear down environments prepared for submissions which will now
+         * never be evaluated. */
+        ArrayList<PreparedSubmission> abandoned = new ArrayList<>();
+        if (this.compileStage != null)
+            this.compileStage.getQueue().drainTo(abandoned);
+        if (this.evaluateStage != null)
+            this.evaluateStage.getQueue().drainTo(abandoned);
+        abandoned.forEach(this::release);
+
+        /* Submissions still queued stay listed, but their spooled files won't
+         * outlive the executor. */
+        this.submissionQueue.forEach(queued -> ArchiveSpool.discard(queued.getSubmission()));
+
+        this.problemListing.close();
+        this.negotiatorClient.close();
+    }
+
+    private static void reapOrphanedEnvironments()
+    {
+        try
+        {
+            ExecutionEnvironmentFactory.reapOrphanedEnvironments();
+        }
+        catch (IOException e)
+        {
+            log.error("Failed to reap orphaned environments", e);
+        }
+    }
+
+    /**
+     * Find an exception of a particular type in a chain of causes.
+     * 
+     * @param throwable the outermost exception
+     * @param type the type of exception to find
+     * @return the first exception of the given type, or null if there is none
+     */
+    private static <T extends Throwable> T causeOf(Throwable throwable, Class<T> type)
+    {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause())
+            if (type.isInstance(cause))
+                return type.cast(cause);
+
+        return null;
+    }
+
+    /**
+     * Record that a submission's outcome has been delivered to the negotiator.
+     * 
+     * @param id the submission ID
+     */
+    private void recordReported(int id)
+    {
+        SubmissionTimeline timeline = this.timelines.get(id);
+        if (timeline != null)
+            timeline.record(Stage.REPORTED);
+    }
+
+    /**
+     * Take the next submission from the queue.
+     *
+     * @return the submission
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private QueuedSubmission dequeue() throws InterruptedException
+    {
+        QueuedSubmission queued = this.intake.take();
+        this.queueVersion.incrementAndGet();
+        this.running.incrementAndGet();
+        return queued;
+    }
+
+    /**
+     * Record that a submission has left the executor, whether executed or
+     * not, freeing its slot.
+     *
+     * @param queued the submission
+     * @param started when the submission was dequeued, in milliseconds
+     */
+    private void finish(QueuedSubmission queued, long started)
+    {
+        this.recordExecutionTime(System.currentTimeMillis() - started);
+        ArchiveSpool.discard(queued.getSubmission());
+        this.running.decrementAndGet();
+        this.occupied.decrementAndGet();
+        synchronized (this.slotFreed)
+        {
+            this.slotFreed.notifyAll();
+        }
+    }
+
+    /**
+     * Tear down a prepared submission's environment and record that it has
+     * left the executor.
+     *
+     * @param prepared the submission
+     */
+    private void release(PreparedSubmission prepared)
+    {
+        closeEnvironment(prepared.environment);
+        if (prepared.hostData != null)
+            this.problemData.release(prepared.hostData);
+        this.finish(prepared.queued, prepared.started);
+    }
+
+    private static void closeEnvironment(ExecutionEnvironment environment)
+    {
+        if (environment == null)
+            return;
+
+        try
+        {
+            environment.close();
+        }
+        catch (IOException e)
+        {
+            log.error("Failed to tear down environment", e);
+        }
+    }
+
+    /**
+     * Prepare a submission for compilation: answer it from the result cache
+     * if possible, or otherwise load its problem and set up an environment
+     * with the submission unpacked. If the submission is not to go any
+     * further, it has been reported and released by the time this returns.
+     *
+     * @param queued the submission
+     * @param slot the cores to which the environment is confined, or null
+     * @return the prepared submission, or null if it has already been dealt
+     *         with
+     */
+    private PreparedSubmission prepare(QueuedSubmission queued, CpuSlot slot)
+    {
+        long started = System.currentTimeMillis();
+        RegisteredSubmission submission = queued.getSubmission();
+        SubmissionTimeline timeline = queued.getTimeline();
+        timeline.record(Stage.DEQUEUED);
+
+        List<ProblemCase> cases;
+        ExecutionEnvironment environment = null;
+        Executor executor;
+        boolean prepared = false;
+
+        /* We may not need to report an error, but here's one
+         * half-constructed and ready to go in the event we do. */
+        ErrorSubmission<RegisteredSubmission> error = new ErrorSubmission<>();
+        error.setId(submission.getId());
+        error.setStage(CapabilityType.EXECUTOR);
+        error.setSubmission(submission);
+
+        try
+        {
+            /* Walk the problem's files once for everything keyed on its
+             * version. */
+            String version;
+            try
+            {
+                version = ProblemVersions.version(this.problems, submission.getProblem());
+            }
+            catch (IOException e)
+            {
+                log.warn("Failed to determine problem version; bypassing caches", e);
+                version = null;
+            }
+
+            String cacheKey = null;
+            if (this.resultCache != null)
+            {
+                cacheKey = (version != null) ? ResultCache.key(submission, version) : null;
+
+                List<IndexedExecutionCase> cached = (cacheKey != null && !queued.getOptions().isRejudge())
+                        ? this.resultCache.get(cacheKey)
+                        : null;
+                if (cached != null)
+                {
+                    timeline.record(Stage.CACHE_HIT);
+                    this.report(queued, new ArrayList<>(cached), null);
+                    return null;
+                }
+            }
+
+            try
+            {
+                cases = this.problemCache.get(submission.getProblem(), version);
+                timeline.record(Stage.PROBLEM_LOADED);
+            }
+            catch (IOException e)
+            {
+                log.error("Failed to retrieve problem definition", e);
+                this.fail(queued, error, ErrorType.E_INTERNAL, "Failed to retrieve problem definition");
+                return null;
+            }
+
+            try
+            {
+                environment = ExecutionEnvironmentFactory.getExecutionEnvironment(slot);
+                if (this.normaliseTimes)
+                    environment.setTimeScale(1.0 / this.speedFactor);
+            }
+            catch (IOException e)
+            {
+                log.error("Failed to retrieve an execution environment", e);
+                this.fail(queued, error, ErrorType.E_INTERNAL, "Failed to retrieve an execution environment");
+                return null;
+            }
+
+            try
+            {
+                executor = ExecutorFactory.getExecutor(submission, environment);
+                timeline.record(Stage.ENVIRONMENT_READY);
+            }
+            catch (UnavailableExecutorException e)
+            {
+                WorkspaceQuotaException quotaException = causeOf(e, WorkspaceQuotaException.class);
+                if (quotaException != null)
+                {
+                    log.info("Submission {} exceeded its workspace quota", submission.getId());
+                    this.fail(queued, error, ErrorType.E_RUNTIME, quotaException.getMessage());
+                    return null;
+                }
+
+                log.error("No executor available for submission", e);
+                this.fail(queued, error, ErrorType.E_INTERNAL, "No executor available for submission");
+                return null;
+            }
+
+            Path hostData = this.layOutProblemData(submission.getProblem(), version, cases);
+            Path containerData = this.mountProblemData(hostData, environment);
+            if (containerData == null && hostData != null)
+            {
+                this.problemData.release(hostData);
+                hostData = null;
+            }
+
+            prepared = true;
+            return new PreparedSubmission(queued, started, error, cacheKey, cases, environment, executor,
+                    hostData, containerData);
+        }
+        catch (RuntimeException e)
+        {
+            this.failUnexpectedly(queued, error, "preparing", e);
+            return null;
+        }
+        finally
+        {
+            if (!prepared)
+            {
+                closeEnvironment(environment);
+                this.finish(queued, started);
+            }
+        }
+    }
+
+    /**
+     * Compile a prepared submission, or unpack the files from an earlier
+     * compilation of the same files in the same language. If compilation
+     * fails, the submission has been reported and released by the time this
+     * returns.
+     *
+     * @param prepared the submission
+     * @return whether the submission compiled
+     */
+    private boolean compile(PreparedSubmission prepared)
+    {
+        boolean compiled = false;
+
+        try
+        {
+            String compilationKey = (this.compilationCache != null)
+                    ? CompilationCache.key(prepared.queued.getSubmission())
+                    : null;
+            List<SubmissionFile> reusable = (compilationKey != null)
+                    ? this.compilationCache.get(compilationKey)
+                    : null;
+
+            if (reusable != null)
+            {
+                prepared.executor.restoreCompiledFiles(reusable);
+                prepared.queued.getTimeline().record(Stage.COMPILATION_REUSED);
+            }
+            else
+            {
+                prepared.executor.compile();
+                prepared.queued.getTimeline().record(Stage.COMPILED);
+
+                if (compilationKey != null)
+                    this.cacheCompilation(compilationKey, prepared.executor);
+            }
+
+            this.warmLanguages.touch(prepared.queued.getSubmission().getLanguage());
+            compiled = true;
+        }
+        catch (IOException e)
+        {
+            log.error("Failure compiling submission", e);
+            this.fail(prepared.queued, prepared.error, ErrorType.E_COMPILATION, "Failure compiling submission");
+        }
+        catch (RuntimeException e)
+        {
+            this.failUnexpectedly(prepared.queued, prepared.error, "compiling", e);
+        }
+        finally
+        {
+            if (!compiled)
+                this.release(prepared);
+        }
+
+        return compiled;
+    }
+
+    /**
+     * Keep the files produced by compiling a submission for others with the
+     * same files and language. The submission itself is unaffected if they
+     * can't be read.
+     */
+    private void cacheCompilation(String compilationKey, Executor executor)
+    {
+        try
+        {
+            List<SubmissionFile> produced = executor.getCompiledFiles();
+            if (produced != null)
+                this.compilationCache.put(compilationKey, produced);
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to read back compiled files; not caching compilation", e);
+        }
+    }
+
+    /**
+     * Evaluate a compiled submission against each of its problem's cases and
+     * report the results. A case which fails is reported as a
+     * {@link FailedExecutionCase failed case} among the results, and the
+     * first failure is also reported as a runtime error. An unexpected
+     * failure is reported as an internal error instead. Whatever happens,
+     * the submission's environment is torn down before returning.
+     *
+     * @param prepared the submission
+     */
+    private void evaluate(PreparedSubmission prepared)
+    {
+        QueuedSubmission queued = prepared.queued;
+        RegisteredSubmission submission = queued.getSubmission();
+        SubmissionTimeline timeline = queued.getTimeline();
+        ErrorSubmission<RegisteredSubmission> error = null;
+        boolean reported = false;
+
+        try
+        {
+            ArrayList<IndexedExecutionCase> executionCases = new ArrayList<>();
+            boolean failFast = this.isFailFast(queued);
+            boolean failed = false;
+            int index = 0;
+            for (ProblemCase problemCase : prepared.cases)
+            {
+                int caseIndex = index++;
+
+                /* The verdict is already decided; don't spend the slot on the
+                 * remaining cases. */
+                if (failed && failFast)
+                {
+                    executionCases.add(new SkippedExecutionCase(problemCase.getName(), caseIndex));
+                    timeline.record(Stage.CASE_SKIPPED, problemCase.getName());
+                    continue;
+                }
+
+                Path inputFile = (prepared.containerData != null && PackedProblem.hasInput(problemCase))
+                        ? prepared.containerData.resolve(ProblemDataStore.inputName(caseIndex))
+                        : null;
+
+                timeline.record(Stage.CASE_STARTED, problemCase.getName());
+                try
+                {
+                    ExecutionCase executionCase = prepared.executor.evaluate(problemCase, inputFile);
+                    if (this.normaliseTimes)
+                        executionCase.setRuntime((int) Math.round(executionCase.getRuntime() * this.speedFactor));
+
+                    executionCases.add(IndexedExecutionCase.of(executionCase, caseIndex));
+                    timeline.record(Stage.CASE_FINISHED, problemCase.getName());
+                }
+                catch (IOException e)
+                {
+                    log.error("Failure while evaluating case", e);
+                    failed = true;
+
+                    if (error == null)
+                    {
+                        error = prepared.error;
+                        error.setType(ErrorType.E_RUNTIME);
+                        error.setMessage(e.getMessage());
+                    }
+
+                    ExecutionTimeoutException timeout = causeOf(e, ExecutionTimeoutException.class);
+                    if (timeout != null)
+                        timeline.record(Stage.RECLAIMED, timeout.isReclaimed()
+                                ? String.format("%s in %d ms", problemCase.getName(), timeout.getReclaimTime())
+                                : String.format("%s unconfirmed", problemCase.getName()));
+
+                    executionCases.add(
+                            new FailedExecutionCase(problemCase.getName(), caseIndex, e.getMessage()));
+                    timeline.record(Stage.FAILED, problemCase.getName());
+                }
+            }
+
+            if (prepared.cacheKey != null && !failed)
+                this.resultCache.put(prepared.cacheKey, submission.getProblem(), executionCases);
+
+            reported = true;
+            this.report(queued, executionCases, error);
+        }
+        catch (RuntimeException e)
+        {
+            if (!reported)
+                this.failUnexpectedly(queued, prepared.error, "evaluating", e);
+            else
+                log.error("Unexpected failure reporting submission", e);
+        }
+        finally
+        {
+            this.release(prepared);
+        }
+    }
+
+    /**
+     * Lay out the problem's case inputs on the host, if problem data is being
+     * laid out. Failure is not fatal: cases fall back to receiving their
+     * input directly.
+     *
+     * @param name the name of the problem
+     * @param version the problem's version, or null if it is unknown
+     * @param cases the problem's cases
+     * @return the directory holding the inputs, held until released, or null
+     *         if inputs must be passed directly
+     */
+    private Path layOutProblemData(String name, String version, List<ProblemCase> cases)
+    {
+        if (this.problemData == null || version == null)
+            return null;
+
+        try
+        {
+            return this.problemData.materialize(name, version, cases);
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to lay out problem data; passing case input directly", e);
+            return null;
+        }
+    }
+
+    /**
+     * Expose laid-out case inputs read-only within the environment, if the
+     * environment supports it.
+     *
+     * @param hostData the directory holding the inputs, or null
+     * @param environment the environment
+     * @return the directory holding the inputs within the environment, or null
+     *         if inputs must be passed directly
+     */
+    private static Path mountProblemData(Path hostData, ExecutionEnvironment environment)
+    {
+        if (hostData == null)
+            return null;
+
+        try
+        {
+            return environment.mountProblemData(hostData);
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to expose problem data; passing case input directly", e);
+            return null;
+        }
+    }
+
+    /**
+     * Queue the results of an execution for the negotiator, along with the
+     * runtime error which came of it, if any. If the submission is part of a
+     * rejudge, both are also queued for any duplicates of it.
+     *
+     * @param queued the submission
+     * @param executionCases the results
+     * @param error the runtime error, or null if every case ran
+     */
+    private void report(QueuedSubmission queued, List<IndexedExecutionCase> executionCases,
+            ErrorSubmission<RegisteredSubmission> error)
+    {
+        this.outgoingQueue.offer(this.execution(queued.getSubmission(), queued.getTimeline(), executionCases));
+        if (error != null)
+            this.errorQueue.offer(error);
+
+        RejudgeBatch batch = queued.getOptions().getBatch();
+        if (batch == null)
+            return;
+
+        for (RegisteredSubmission duplicate : batch.finish(queued.getSubmission().getId(), true))
+        {
+            SubmissionTimeline timeline = this.timelines.start(duplicate.getId());
+            timeline.record(Stage.CACHE_HIT);
+            this.outgoingQueue.offer(this.execution(duplicate, timeline, executionCases));
+            if (error != null)
+                this.errorQueue.offer(duplicateError(duplicate, error.getType(), error.getMessage()));
+        }
+    }
+
+    private Execution execution(RegisteredSubmission submission, SubmissionTimeline timeline,
+            List<IndexedExecutionCase> executionCases)
+    {
+        Execution execution = this.attachTimelines
+                ? new TracedExecution(submission, timeline)
+                : new Execution(submission);
+
+        if (this.outputStore == null)
+        {
+            execution.setCases(new ArrayList<ExecutionCase>(executionCases));
+            return execution;
+        }
+
+        /* Keep full outputs here and send only their digests. Outputs are
+         * filed by case index: a list of results may leave out cases or
+         * include skipped or failed ones, which have no output. */
+        ArrayList<ExecutionCase> digestedCases = new ArrayList<>(executionCases.size());
+        for (IndexedExecutionCase executionCase : executionCases)
+        {
+            if (executionCase instanceof SkippedExecutionCase
+                    || executionCase instanceof FailedExecutionCase)
+            {
+                digestedCases.add(executionCase);
+                continue;
+            }
+
+            if (executionCase.getOutput() != null)
+                this.outputStore.put(submission.getId(), executionCase.getCaseIndex(), executionCase.getOutput());
+
+            digestedCases.add(DigestedExecutionCase.digest(executionCase, this.outputPrefixLength));
+        }
+        execution.setCases(digestedCases);
+
+        return execution;
+    }
+
+    /**
+     * Queue an error for the negotiator. If the submission is part of a
+     * rejudge, the error is also queued for any duplicates of it.
+     *
+     * @param queued the submission
+     * @param error the half-constructed error
+     * @param type the type of error
+     * @param message a description of the error
+     */
+    private void fail(QueuedSubmission queued, ErrorSubmission<RegisteredSubmission> error,
+            ErrorType type, String message)
     {
-        ArrayList<RegisteredSubmission> frozenQueue = new ArrayList<>(this.submissionQueue);
-        ArrayList<Integer> queuedIds = new ArrayList<>(frozenQueue.size());
+        error.setType(type);
+        error.setMessage(message);
+        queued.getTimeline().record(Stage.FAILED, message);
+        this.errorQueue.offer(error);
 
-        frozenQueue.forEach(submission -> queuedIds.add(submission.getId()));
+        RejudgeBatch batch = queued.getOptions().getBatch();
+        if (batch == null)
+            return;
 
-        return queuedIds;
+        for (RegisteredSubmission duplicate : batch.finish(queued.getSubmission().getId(), false))
+        {
+            this.timelines.start(duplicate.getId()).record(Stage.FAILED, message);
+            this.errorQueue.offer(duplicateError(duplicate, type, message));
+        }
     }
 
     /**
-     * Start processing queued submissions.
+     * Report a submission which failed for a reason no stage anticipated,
+     * such as a bug in an executor, as an internal error, so that it is not
+     * left without a verdict.
+     *
+     * @param queued the submission
+     * @param error the half-constructed error
+     * @param stage what was being done to the submission
+     * @param e the failure
      */
-    public void start()
+    private void failUnexpectedly(QueuedSubmission queued, ErrorSubmission<RegisteredSubmission> error,
+            String stage, RuntimeException e)
     {
-        log.info("Starting execution manager");
-        this.executionThread.start();
-        this.reportThread.start();
-        this.errorThread.start();
+        String message = String.format("Unexpected failure %s submission", stage);
+        log.error(message, e);
+        this.fail(queued, error, ErrorType.E_INTERNAL, message);
     }
 
-    @Override
-    public void close() throws IOException
+    /**
+     * @return an error for a duplicate in a rejudge, sharing the error of the
+     *         submission which was actually executed
+     */
+    private static ErrorSubmission<RegisteredSubmission> duplicateError(RegisteredSubmission duplicate,
+            ErrorType type, String message)
     {
-        log.info("Closing execution manager");
-        this.executionThread.interrupt();
-        this.reportThread.interrupt();
-        this.errorThread.interrupt();
+        ErrorSubmission<RegisteredSubmission> duplicateError = new ErrorSubmission<>();
+        duplicateError.setId(duplicate.getId());
+        duplicateError.setStage(CapabilityType.EXECUTOR);
+        duplicateError.setSubmission(duplicate);
+        duplicateError.setType(type);
+        duplicateError.setMessage(message);
+
+        return duplicateError;
     }
 
     /**
-     * Thread to perform the actual executions.
+     * Worker to perform the actual executions. When the stages are pipelined,
+     * it evaluates submissions which have already been prepared and compiled;
+     * otherwise it takes each submission through every stage itself.
      *
      * @author Samuel Coleman <samuel@seenet.ca>
      * @since 1.0.0
      */
-    private class ExecutionThread extends Thread
+    private class ExecutionWorker implements Runnable
     {
-        public ExecutionThread()
+        /**
+         * The cores on which this worker's executions run, or null if they may
+         * run on any core.
+         */
+        private final CpuSlot slot;
+
+        public ExecutionWorker(CpuSlot slot)
         {
-            super("Execution thread");
+            this.slot = slot;
         }
 
         @Override
@@ -159,138 +1448,200 @@ public class ExecutionManager implements ExecutorStatus, Closeable
                     if (Thread.interrupted())
                         break;
 
-                    RegisteredSubmission submission = ExecutionManager.this.submissionQueue.take();
-
-                    Problem problem;
-                    ExecutionEnvironment environment;
-                    Executor executor;
-
-                    /* We may not need to report an error, but here's one
-                     * half-constructed and ready to go in the event we do. */
-                    ErrorSubmission<RegisteredSubmission> error = new ErrorSubmission<>();
-                    error.setId(submission.getId());
-                    error.setStage(CapabilityType.EXECUTOR);
-                    error.setSubmission(submission);
-
-                    try
+                    if (evaluateStage != null)
                     {
-                        problem = Problems.problemByName(problems, submission.getProblem());
-                    }
-                    catch (IOException e)
-                    {
-                        log.error("Failed to retrieve problem definition", e);
-
-                        error.setType(ErrorType.E_INTERNAL);
-                        error.setMessage("Failed to retrieve problem definition");
-                        ExecutionManager.this.errorQueue.offer(error);
+                        PreparedSubmission prepared = evaluateStage.take();
+                        try
+                        {
+                            if (confine(prepared, this.slot))
+                                evaluate(prepared);
+                        }
+                        finally
+                        {
+                            evaluateStage.done();
+                        }
 
                         continue;
                     }
 
-                    try
-                    {
-                        environment = ExecutionEnvironmentFactory.getExecutionEnvironment();
-                    }
-                    catch (IOException e)
-                    {
-                        log.error("Failed to retrieve an execution environment", e);
+                    executeNext(this.slot);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                /* If we've been interrupted, just finish execution. */
+            }
 
-                        error.setType(ErrorType.E_INTERNAL);
-                        error.setMessage("Failed to retrieve an execution environment");
-                        ExecutionManager.this.errorQueue.offer(error);
+            log.info("Finishing execution thread");
+        }
+    }
 
-                        continue;
-                    }
+    /**
+     * Confine a prepared submission's environment to a worker's cores. If
+     * that fails, the submission has been reported and released by the time
+     * this returns.
+     *
+     * @param prepared the submission
+     * @param slot the cores, or null if it may run on any core
+     * @return whether the environment was confined
+     */
+    private boolean confine(PreparedSubmission prepared, CpuSlot slot)
+    {
+        try
+        {
+            prepared.environment.setSlot(slot);
+            return true;
+        }
+        catch (RuntimeException e)
+        {
+            this.failUnexpectedly(prepared.queued, prepared.error, "confining", e);
+            this.release(prepared);
+            return false;
+        }
+    }
 
-                    try
-                    {
-                        executor = ExecutorFactory.getExecutor(submission, environment);
-                    }
-                    catch (UnavailableExecutorException e)
-                    {
-                        log.error("No executor available for submission", e);
+    /**
+     * Take the next queued submission through every stage in turn, waiting
+     * for one if the queue is empty.
+     *
+     * @param slot the cores to which the submission's environment is
+     *            confined, or null
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void executeNext(CpuSlot slot) throws InterruptedException
+    {
+        QueuedSubmission queued = this.dequeue();
+        try
+        {
+            PreparedSubmission prepared = this.prepare(queued, slot);
+            if (prepared != null && this.compile(prepared))
+                this.evaluate(prepared);
+        }
+        finally
+        {
+            this.intake.done();
+        }
+    }
 
-                        error.setType(ErrorType.E_INTERNAL);
-                        error.setMessage("No executor available for submission");
-                        ExecutionManager.this.errorQueue.offer(error);
+    /**
+     * Worker to prepare environments for submissions ahead of their
+     * compilation.
+     *
+     * @author Samuel Coleman <samuel@seenet.ca>
+     * @since 1.0.0
+     */
+    private class PreparationWorker implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            log.info("Starting preparation thread");
 
-                        continue;
-                    }
+            try
+            {
+                while (true)
+                {
+                    if (Thread.interrupted())
+                        break;
 
+                    QueuedSubmission queued = dequeue();
+                    PreparedSubmission prepared;
                     try
                     {
-                        executor.compile();
+                        prepared = prepare(queued, compileSlot);
                     }
-                    catch (IOException e)
+                    finally
                     {
-                        log.error("Failure compiling submission", e);
-
-                        error.setType(ErrorType.E_COMPILATION);
-                        error.setMessage("Failure compiling submission");
-                        ExecutionManager.this.errorQueue.offer(error);
-
-                        continue;
+                        intake.done();
                     }
 
-                    ArrayList<ExecutionCase> executionCases = new ArrayList<>();
-                    for (ProblemCase problemCase : problem.getCases())
-                    {
-                        try
-                        {
-                            executionCases.add(executor.evaluate(problemCase));
-                        }
-                        catch (IOException e)
-                        {
-                            log.error("Failure while evaluating case", e);
-
-                            error.setType(ErrorType.E_RUNTIME);
-                            error.setMessage(e.getMessage());
-                            ExecutionManager.this.errorQueue.offer(error);
+                    if (prepared != null)
+                        handOff(prepared, compileStage);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                /* If we've been interrupted, just finish preparation. */
+            }
 
-                            continue;
-                        }
-                    }
+            log.info("Finishing preparation thread");
+        }
+    }
 
-                    Execution execution = new Execution(submission);
-                    execution.setCases(executionCases);
+    /**
+     * Worker to compile prepared submissions ahead of their evaluation.
+     *
+     * @author Samuel Coleman <samuel@seenet.ca>
+     * @since 1.0.0
+     */
+    private class CompilationWorker implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            log.info("Starting compilation thread");
 
-                    ExecutionManager.this.outgoingQueue.offer(execution);
+            try
+            {
+                while (true)
+                {
+                    if (Thread.interrupted())
+                        break;
 
+                    PreparedSubmission prepared = compileStage.take();
+                    boolean compiled;
                     try
                     {
-                        executor.close();
+                        compiled = compile(prepared);
                     }
-                    catch (IOException e)
+                    finally
                     {
-                        log.error("Failed to tear down executor", e);
+                        compileStage.done();
                     }
+
+                    if (compiled)
+                        handOff(prepared, evaluateStage);
                 }
             }
             catch (InterruptedException e)
             {
-                /* If we've been interrupted, just finish execution. */
+                /* If we've been interrupted, just finish compilation. */
             }
 
-            log.info("Finishing execution thread");
+            log.info("Finishing compilation thread");
         }
     }
 
     /**
-     * Thread to report back to the negotiator.
+     * Pass a submission on to the next stage, waiting for room in its queue.
+     * If interrupted while waiting, the submission is released.
      *
-     * @author Samuel Coleman <samuel@seenet.ca>
-     * @since 1.0.0
+     * @param prepared the submission
+     * @param stage the next stage
+     * @throws InterruptedException if interrupted while waiting
      */
-    private class ReportThread extends Thread
+    private void handOff(PreparedSubmission prepared, PipelineStage<PreparedSubmission> stage)
+            throws InterruptedException
     {
-        private final URI negotiator;
-
-        public ReportThread(URI negotiator)
+        try
         {
-            super("Negotiator reporting thread");
-            this.negotiator = negotiator;
+            stage.getQueue().put(prepared);
         }
+        catch (InterruptedException e)
+        {
+            this.release(prepared);
+            throw e;
+        }
+    }
 
+    /**
+     * Worker to report back to the negotiator.
+     *
+     * @author Samuel Coleman <samuel@seenet.ca>
+     * @since 1.0.0
+     */
+    private class ReportWorker implements Runnable
+    {
         @Override
         public void run()
         {
@@ -303,38 +1654,33 @@ public class ExecutionManager implements ExecutorStatus, Closeable
                     if (Thread.interrupted())
                         break;
 
-                    Execution execution = ExecutionManager.this.outgoingQueue.take();
-
-                    ObjectMapper mapper = new ObjectMapper();
+                    Execution execution = reportStage.take();
 
-                    HttpClient client;
-                    HttpPost post;
-                    HttpEntity body;
-
-                    client = HttpClients.createDefault();
-                    post = new HttpPost(this.negotiator.resolve("judge/" + execution.getId()));
                     try
                     {
-                        body = new ByteArrayEntity(mapper.writeValueAsBytes(execution));
+                        negotiatorClient.post("judge/" + execution.getId(), execution);
                     }
                     catch (JsonProcessingException e)
                     {
                         log.error("Failed to encode outgoing execution object to JSON", e);
                         continue;
                     }
-
-                    post.setHeader("Content-Type", "application/json");
-                    post.setEntity(body);
-
-                    try
-                    {
-                        client.execute(post);
-                    }
                     catch (IOException e)
                     {
                         log.error("Failed to call negotiator with outgoing execution object", e);
                         continue;
                     }
+                    catch (RuntimeException e)
+                    {
+                        log.error("Unexpected failure sending outgoing execution object", e);
+                        continue;
+                    }
+                    finally
+                    {
+                        reportStage.done();
+                    }
+
+                    recordReported(execution.getId());
                 }
             }
             catch (InterruptedException e)
@@ -347,21 +1693,13 @@ public class ExecutionManager implements ExecutorStatus, Closeable
     }
 
     /**
-     * Thread to send errors back to the negotiator.
+     * Worker to send errors back to the negotiator.
      *
      * @author Samuel Coleman <samuel@seenet.ca>
      * @since 1.0.0
      */
-    private class ErrorThread extends Thread
+    private class ErrorWorker implements Runnable
     {
-        private final URI negotiator;
-
-        public ErrorThread(URI negotiator)
-        {
-            super("Error reporting thread");
-            this.negotiator = negotiator;
-        }
-
         @Override
         public void run()
         {
@@ -376,36 +1714,27 @@ public class ExecutionManager implements ExecutorStatus, Closeable
 
                     ErrorSubmission<RegisteredSubmission> error = ExecutionManager.this.errorQueue.take();
 
-                    ObjectMapper mapper = new ObjectMapper();
-
-                    HttpClient client;
-                    HttpPost post;
-                    HttpEntity body;
-
-                    client = HttpClients.createDefault();
-                    post = new HttpPost(this.negotiator.resolve("error/" + error.getId()));
                     try
                     {
-                        body = new ByteArrayEntity(mapper.writeValueAsBytes(error));
+                        negotiatorClient.post("error/" + error.getId(), error);
                     }
                     catch (JsonProcessingException e)
                     {
                         log.error("Failed to encode outgoing error object to JSON", e);
                         continue;
                     }
-
-                    post.setHeader("Content-Type", "application/json");
-                    post.setEntity(body);
-
-                    try
-                    {
-                        client.execute(post);
-                    }
                     catch (IOException e)
                     {
                         log.error("Failed to call negotiator with outgoing error object", e);
                         continue;
                     }
+                    catch (RuntimeException e)
+                    {
+                        log.error("Unexpected failure sending outgoing error object", e);
+                        continue;
+                    }
+
+                    recordReported(error.getId());
                 }
             }
             catch (InterruptedException e)
@@ -416,4 +1745,168 @@ public class ExecutionManager implements ExecutorStatus, Closeable
             log.info("Finishing error reporting thread");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * A submission whose environment has been set up, on its way between
+     * stages.
+     */
+    @RequiredArgsConstructor
+    private static class PreparedSubmission
+    {
+        private final QueuedSubmission queued;
+        /**
+         * When the submission was dequeued, in milliseconds.
+         */
+        private final long started;
+        private final ErrorSubmission<RegisteredSubmission> error;
+        private final String cacheKey;
+        private final List<ProblemCase> cases;
+        private final ExecutionEnvironment environment;
+        private final Executor executor;
+        /**
+         * The directory holding the case inputs on the host, held until the
+         * submission is released, or null if inputs are passed directly.
+         */
+        private final Path hostData;
+        /**
+         * The directory holding the case inputs within the environment, or
+         * null if inputs are passed directly.
+         */
+        private final Path containerData;
+    }
+
+    /**
+     * The IDs of queued submissions at a particular version of the queue.
+     */
+    @RequiredArgsConstructor
+    private static class QueueSnapshot
+    {
+        private final long version;
+        private final QueuedIds ids;
+    }
+
+    /**
+     * The IDs in a {@link QueueSnapshot queue snapshot}. The snapshot is
+     * shared between callers of {@link ExecutionManager#getQueued()}, whose
+     * signature promises an {@link ArrayList}, so every way of modifying one
+     * is refused.
+     */
+    private static final class QueuedIds extends ArrayList<Integer>
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * A read-only view of the same IDs, through which the list is
+         * iterated.
+         */
+        private final List<Integer> view;
+
+        public QueuedIds(List<Integer> ids)
+        {
+            super(ids);
+            this.view = Collections.unmodifiableList(new ArrayList<>(ids));
+        }
+
+        @Override
+        public Iterator<Integer> iterator()
+        {
+            return this.view.iterator();
+        }
+
+        @Override
+        public ListIterator<Integer> listIterator()
+        {
+            return this.view.listIterator();
+        }
+
+        @Override
+        public ListIterator<Integer> listIterator(int index)
+        {
+            return this.view.listIterator(index);
+        }
+
+        @Override
+        public List<Integer> subList(int fromIndex, int toIndex)
+        {
+            return this.view.subList(fromIndex, toIndex);
+        }
+
+        @Override
+        public Integer set(int index, Integer element)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean add(Integer element)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(int index, Integer element)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends Integer> elements)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean addAll(int index, Collection<? extends Integer> elements)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Integer remove(int index)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean remove(Object element)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> elements)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> elements)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super Integer> filter)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void replaceAll(UnaryOperator<Integer> operator)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void sort(Comparator<? super Integer> comparator)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clear()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.garrit.executor;
+
+import java.io.IOException;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a command exceeds its timeout, once whatever it left running in
+ * the environment has been killed.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class ExecutionTimeoutException extends IOException
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The time in milliseconds taken to kill everything the command left
+     * running, or -1 if it could not be confirmed dead.
+     */
+    @Getter
+    private final long reclaimTime;
+
+    public ExecutionTimeoutException(String message, long reclaimTime)
+    {
+        super(message);
+        this.reclaimTime = reclaimTime;
+    }
+
+    /**
+     * @return whether everything the command left running was confirmed dead
+     */
+    public boolean isReclaimed()
+    {
+        return this.reclaimTime >= 0;
+    }
+}
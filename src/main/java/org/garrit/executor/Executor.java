@@ -3,6 +3,7 @@ package org.garrit.executor;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.List;
 
 import lombok.Getter;
 
@@ -11,6 +12,7 @@ import org.garrit.common.ProblemCase;
 import org.garrit.common.messages.ExecutionCase;
 import org.garrit.common.messages.RegisteredSubmission;
 import org.garrit.common.messages.Submission;
+import org.garrit.common.messages.SubmissionFile;
 
 /**
  * An executor is capable of instructing the {@link ExecutionEnvironment
@@ -50,6 +52,32 @@ public abstract class Executor implements Closeable
      */
     public abstract void compile() throws IOException;
 
+    /**
+     * Read back the files produced by {@link #compile() compiling}, so that
+     * another submission with the same files and language can skip
+     * compilation. Executors whose compilation can't be reused this way
+     * return null.
+     * 
+     * @return the files, named relative to the unpacked submission, or null
+     * @throws IOException if the files cannot be read
+     */
+    public List<SubmissionFile> getCompiledFiles() throws IOException
+    {
+        return null;
+    }
+
+    /**
+     * Take the place of {@link #compile()} by unpacking files produced by
+     * compiling the same files in the same language elsewhere.
+     * 
+     * @param compiled the files, as read by {@link #getCompiledFiles()}
+     * @throws IOException if the files cannot be unpacked
+     */
+    public void restoreCompiledFiles(List<SubmissionFile> compiled) throws IOException
+    {
+        this.environment.unpack(compiled);
+    }
+
     /**
      * Execute the submission for a given problem case.
      * 
@@ -59,6 +87,22 @@ public abstract class Executor implements Closeable
      */
     public abstract ExecutionCase evaluate(ProblemCase problemCase) throws IOException;
 
+    /**
+     * Execute the submission for a given problem case, reading the case's
+     * input from a file already present in the environment. Executors which
+     * cannot do so ignore the file and pass the input directly.
+     * 
+     * @param problemCase the problem case
+     * @param inputFile the path of the case's input within the environment,
+     *            or null if the input should be passed directly
+     * @return the results of problem execution
+     * @throws IOException if an error occurs while evaluating
+     */
+    public ExecutionCase evaluate(ProblemCase problemCase, Path inputFile) throws IOException
+    {
+        return this.evaluate(problemCase);
+    }
+
     /**
      * Clean up the environment.
      */
@@ -1,12 +1,16 @@
 package org.garrit.executor;
 
 import io.dropwizard.Application;
+import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 
 import java.util.Map;
 
 import org.garrit.common.messages.statuses.Status;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
 /**
  * Main entry point for the executor service.
  *
@@ -29,6 +33,12 @@ public class ExecutorApplication extends Application<ExecutorConfiguration>
         return ExecutorApplication.class.getName();
     }
 
+    @Override
+    public void initialize(Bootstrap<ExecutorConfiguration> bootstrap)
+    {
+        bootstrap.addCommand(new PackProblemsCommand());
+    }
+
     @Override
     public void run(ExecutorConfiguration config, Environment env) throws Exception
     {
@@ -37,21 +47,55 @@ public class ExecutorApplication extends Application<ExecutorConfiguration>
                     executorEntry.getKey(),
                     Class.forName(executorEntry.getValue()).asSubclass(Executor.class));
 
-        this.executor = new ExecutionManager(config.getProblems(), config.getNegotiator());
+        Threads.setMode(config.getThreading());
+        LXCEnvironment.configureWorkspaces(config.getWorkspaceRoot(), config.getWorkspaceQuota());
+        LXCEnvironment.configureAgent(config.isContainerAgent());
+        LXCEnvironment.configureOutputLimit(config.getOutputLimit());
+        LXCEnvironment.configureLimits(config.getCgroupVersion(), config.getContainerPidsLimit(),
+                config.getContainerMemoryLimit());
+        JavaExecutor.configure(new JavaProfile(config.getJavaFlags(), config.getJavaQuickStartLimit(),
+                (config.getJavaArchiveDirectory() != null)
+                        ? JavaProfile.prepareArchive(config.getJavaArchiveDirectory())
+                        : null,
+                config.getContainerMemoryLimit()));
+
+        this.executor = new ExecutionManager(config);
 
         this.status = new Status(config.getName());
         this.status.setCapabilityStatus(executor);
 
         final StatusResource statusResource = new StatusResource(this.status);
-        final ExecuteResource executeResource = new ExecuteResource(this.executor);
+        final ExecuteResource executeResource = new ExecuteResource(this.executor, env.getObjectMapper());
+        final RejudgeResource rejudgeResource = new RejudgeResource(this.executor);
 
         env.jersey().register(statusResource);
         env.jersey().register(executeResource);
+        env.jersey().register(rejudgeResource);
+
+        if (this.executor.getResultCache() != null)
+            env.jersey().register(new CacheResource(this.executor.getResultCache()));
+        if (this.executor.getOutputStore() != null)
+            env.jersey().register(new OutputResource(this.executor.getOutputStore()));
+
+        for (Map.Entry<String, PipelineStage<?>> stage : this.executor.getStages().entrySet())
+        {
+            PipelineStage<?> pipelineStage = stage.getValue();
+            env.metrics().register(MetricRegistry.name(ExecutionManager.class, "stages", stage.getKey(), "busy"),
+                    (Gauge<Integer>) pipelineStage::getBusy);
+            env.metrics().register(MetricRegistry.name(ExecutionManager.class, "stages", stage.getKey(), "queued"),
+                    (Gauge<Integer>) pipelineStage::getQueued);
+            env.metrics().register(
+                    MetricRegistry.name(ExecutionManager.class, "stages", stage.getKey(), "occupancy"),
+                    (Gauge<Double>) pipelineStage::getOccupancy);
+        }
 
         final StatusHealthCheck statusHealthCheck = new StatusHealthCheck(status);
 
         env.healthChecks().register("status", statusHealthCheck);
 
+        env.admin().addServlet("trace", new TraceServlet(this.executor.getTimelines(), env.getObjectMapper()))
+                .addMapping("/trace/*");
+
         this.executor.start();
     }
 }
\ No newline at end of file
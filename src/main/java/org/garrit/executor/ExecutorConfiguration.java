@@ -4,7 +4,11 @@ import io.dropwizard.Configuration;
 
 import java.net.URI;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -18,4 +22,230 @@ public class ExecutorConfiguration extends Configuration
     private Path problems;
 
     private HashMap<String, String> executors;
+
+    /**
+     * The number of recent submission timelines to retain for tracing.
+     */
+    private int traceCapacity = 1024;
+    /**
+     * Whether or not to include submission timelines in executions sent to the
+     * negotiator.
+     */
+    private boolean attachTimelines = false;
+
+    /**
+     * The kind of thread on which workers, reporters and process I/O run.
+     */
+    private Threads.Mode threading = Threads.Mode.PLATFORM;
+    /**
+     * The number of submissions to execute concurrently. Ignored when
+     * executions are pinned to cores, in which case there is one worker per
+     * slot.
+     */
+    private int workers = 1;
+    /**
+     * The number of threads reporting each of results and errors to the
+     * negotiator.
+     */
+    private int reporters = 1;
+    /**
+     * Whether to prepare, compile and evaluate submissions on separate pools
+     * of threads, so that the next submissions are compiled while the current
+     * ones are evaluated. The evaluation pool has one thread per worker.
+     */
+    private boolean pipelined = false;
+    /**
+     * The number of threads preparing environments when pipelined.
+     */
+    private int preparers = 1;
+    /**
+     * The number of threads compiling submissions when pipelined.
+     */
+    private int compilers = 1;
+
+    /**
+     * Whether or not to pin each execution to its own set of cores.
+     */
+    private boolean cpuPinning = false;
+    /**
+     * The number of cores kept for the executor itself when pinning.
+     */
+    private int reservedCores = 1;
+    /**
+     * The number of cores given to each execution when pinning.
+     */
+    private int coresPerSlot = 1;
+
+    /**
+     * The directory in which container workspaces are created. It must be
+     * dedicated to workspaces, and be the directory given to the LXC install
+     * script, whose helper refuses to remove workspaces anywhere else.
+     */
+    private Path workspaceRoot = LXCEnvironment.DEFAULT_WORKSPACE_ROOT;
+    /**
+     * The size of the tmpfs backing each container workspace, such as
+     * <code>256m</code>. Workspaces are kept on disk if unset.
+     */
+    private String workspaceQuota;
+    /**
+     * The number of bytes of each of a command's output streams retained.
+     * Anything beyond is discarded, save for the last few kilobytes.
+     */
+    private long outputLimit = 64 * 1024 * 1024;
+    /**
+     * The version of the host's cgroup hierarchy: 1 or 2. It decides whether
+     * containers are confined through <code>lxc.cgroup.*</code> or
+     * <code>lxc.cgroup2.*</code> keys.
+     */
+    private int cgroupVersion = 1;
+    /**
+     * The most processes and threads each container may run, or 0 for no
+     * limit.
+     */
+    private int containerPidsLimit = LXCEnvironment.DEFAULT_PIDS_LIMIT;
+    /**
+     * The most memory in bytes each container may use, or 0 for no limit.
+     */
+    private long containerMemoryLimit = LXCEnvironment.DEFAULT_MEMORY_LIMIT;
+
+    /**
+     * Whether to run commands through an agent started once per container,
+     * rather than through a fresh <code>lxc-execute</code> per command.
+     */
+    private boolean containerAgent = false;
+
+    /**
+     * The interval in seconds between sweeps for orphaned containers and
+     * workspaces. Orphans are always swept at startup; 0 disables later
+     * sweeps.
+     */
+    private long janitorInterval = 300;
+
+    /**
+     * The number of execution results to cache for identical resubmissions,
+     * or 0 to disable the cache.
+     */
+    private int resultCacheSize = 0;
+    /**
+     * The number of compilations to cache for submissions with the same files
+     * and language, such as those rejudged after a problem changes, or 0 to
+     * disable the cache.
+     */
+    private int compilationCacheSize = 256;
+    /**
+     * The number of loaded problem definitions to keep in memory.
+     */
+    private int problemCacheSize = 8;
+    /**
+     * The directory under which problems' case inputs are laid out for
+     * read-only bind-mounting into environments, or null to pass each case's
+     * input directly.
+     */
+    private Path problemData;
+    /**
+     * Problems whose submissions stop evaluating at the first failed case,
+     * unless a submission asks otherwise.
+     */
+    private Set<String> failFastProblems = new HashSet<>();
+
+    /**
+     * Whether to benchmark the host at startup to determine its speed
+     * relative to the reference machine.
+     */
+    private boolean calibrate = false;
+    /**
+     * The calibration benchmark's runtime on the reference machine in
+     * milliseconds.
+     */
+    private int calibrationReference = 1000;
+    /**
+     * The number of times to run the calibration benchmark.
+     */
+    private int calibrationRuns = 3;
+    /**
+     * Whether to scale time limits and reported runtimes by the measured speed
+     * factor, so that they are relative to the reference machine.
+     */
+    private boolean normaliseTimes = false;
+
+    /**
+     * Whether to long-poll the negotiator for work, rather than waiting for
+     * work to be pushed.
+     */
+    private boolean pullWork = false;
+    /**
+     * The time in seconds for which the negotiator may hold a poll for work
+     * open.
+     */
+    private int pollTimeout = 30;
+
+    /**
+     * The time in seconds for which a language remains advertised as warm
+     * after it was last used.
+     */
+    private long warmTtl = 600;
+
+    /**
+     * Options given to every JVM running a Java submission.
+     */
+    private List<String> javaFlags = new ArrayList<>();
+    /**
+     * Java cases with a time limit of at most this many seconds are run with
+     * only the C1 compiler, or 0 to leave compilation to the JVM.
+     */
+    private long javaQuickStartLimit = 0;
+    /**
+     * The directory in which to build and keep class data sharing archives
+     * for Java submissions, or null to run them without one.
+     */
+    private Path javaArchiveDirectory;
+
+    /**
+     * The directory into which uploaded submission archives are unpacked, or
+     * null to use the system temporary directory.
+     */
+    private Path archiveSpool;
+    /**
+     * The maximum total uncompressed size of a submission archive in bytes.
+     */
+    private long archiveMaxBytes = 64L * 1024 * 1024;
+    /**
+     * The maximum number of entries in a submission archive.
+     */
+    private int archiveMaxEntries = 1024;
+    /**
+     * Submissions whose files total more than this many bytes are spilled to
+     * the archive spool while they are queued, or 0 to keep every queued
+     * submission in memory.
+     */
+    private long spillThreshold = 0;
+
+    /**
+     * The content encoding applied to results and errors sent to the
+     * negotiator.
+     */
+    private NegotiatorClient.Compression reportCompression = NegotiatorClient.Compression.NONE;
+    /**
+     * The size in bytes from which outgoing messages are compressed.
+     */
+    private int reportCompressionThreshold = 1024;
+
+    /**
+     * Whether to send digests of case outputs to the negotiator instead of
+     * the outputs themselves. Full outputs are then kept locally and served
+     * on request.
+     */
+    private boolean outputDigests = false;
+    /**
+     * The number of bytes of each output sent along with its digest.
+     */
+    private int outputPrefixLength = 256;
+    /**
+     * The maximum total size in bytes of full outputs kept locally.
+     */
+    private long outputStoreSize = 256L * 1024 * 1024;
+    /**
+     * How long full outputs are kept locally, in seconds.
+     */
+    private long outputTtl = 3600;
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package org.garrit.executor;
+
+import lombok.Getter;
+
+/**
+ * An {@link org.garrit.common.messages.ExecutionCase execution case} which
+ * failed to run to completion: it exited with an error, ran out of time, or
+ * could not be run at all. It carries no output or runtime, only a
+ * description of the failure.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class FailedExecutionCase extends IndexedExecutionCase
+{
+    /**
+     * Always true; distinguishes failed cases from cases which produced no
+     * output.
+     */
+    @Getter
+    private final boolean failed = true;
+    /**
+     * A description of the failure.
+     */
+    @Getter
+    private final String message;
+
+    public FailedExecutionCase(String name, int caseIndex, String message)
+    {
+        super(name, caseIndex);
+        this.message = message;
+    }
+}
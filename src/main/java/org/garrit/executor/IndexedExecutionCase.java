@@ -0,0 +1,45 @@
+package org.garrit.executor;
+
+import lombok.Getter;
+
+import org.garrit.common.messages.ExecutionCase;
+
+/**
+ * An {@link ExecutionCase execution case} which knows the index of its case
+ * within the problem. Results may leave out or add cases, so their position in
+ * a list of results is no guide to which case they belong to; full outputs
+ * are stored and served by this index instead.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class IndexedExecutionCase extends ExecutionCase
+{
+    /**
+     * The index of the case within the problem.
+     */
+    @Getter
+    private final int caseIndex;
+
+    public IndexedExecutionCase(String name, int caseIndex)
+    {
+        this.setName(name);
+        this.caseIndex = caseIndex;
+    }
+
+    /**
+     * Attach a case index to the results of executing a case.
+     *
+     * @param executionCase the results
+     * @param caseIndex the index of the case within the problem
+     * @return the results, with their case index
+     */
+    public static IndexedExecutionCase of(ExecutionCase executionCase, int caseIndex)
+    {
+        IndexedExecutionCase indexed = new IndexedExecutionCase(executionCase.getName(), caseIndex);
+        indexed.setRuntime(executionCase.getRuntime());
+        indexed.setOutput(executionCase.getOutput());
+
+        return indexed;
+    }
+}
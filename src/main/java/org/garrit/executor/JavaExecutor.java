@@ -2,8 +2,10 @@ package org.garrit.executor;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -23,10 +25,38 @@ import org.garrit.executor.ExecutionEnvironment.EnvironmentResponse;
 public class JavaExecutor extends Executor
 {
     private static final int COMPILE_TIMEOUT = 60;
+    /**
+     * The most of a failed case's stderr to include in its description.
+     */
+    private static final int MAX_STDERR = 4096;
+
+    private static volatile JavaProfile profile = JavaProfile.DEFAULT;
+
+    /**
+     * The class data sharing archive's path within the environment, or null
+     * if it is unavailable there.
+     */
+    private final Path archive;
 
     public JavaExecutor(RegisteredSubmission submission, ExecutionEnvironment environment) throws IOException
     {
         super(submission, environment);
+
+        Path hostArchive = profile.getArchive();
+        Path archiveDirectory = (hostArchive != null)
+                ? environment.mountReadOnly(hostArchive.getParent(), "jvm")
+                : null;
+        this.archive = (archiveDirectory != null) ? archiveDirectory.resolve(hostArchive.getFileName()) : null;
+    }
+
+    /**
+     * Set the JVM options with which submissions are run from now on.
+     * 
+     * @param javaProfile the profile
+     */
+    public static void configure(JavaProfile javaProfile)
+    {
+        profile = javaProfile;
     }
 
     @Override
@@ -47,8 +77,20 @@ public class JavaExecutor extends Executor
                             response.exitCode, response.stderr));
     }
 
+    @Override
+    public List<SubmissionFile> getCompiledFiles() throws IOException
+    {
+        return this.getEnvironment().retrieve(this.getUnpackedPath(), ".class");
+    }
+
     @Override
     public ExecutionCase evaluate(ProblemCase problemCase) throws IOException
+    {
+        return this.evaluate(problemCase, null);
+    }
+
+    @Override
+    public ExecutionCase evaluate(ProblemCase problemCase, Path inputFile) throws IOException
     {
         ExecutionCase executionCase = new ExecutionCase();
         executionCase.setName(problemCase.getName());
@@ -56,18 +98,30 @@ public class JavaExecutor extends Executor
         EnvironmentResponse response;
 
         ArrayList<String> command = new ArrayList<>();
-        command.addAll(Arrays.asList("/usr/local/bin/cputime", "java", "-cp"));
+        command.addAll(Arrays.asList("/usr/local/bin/cputime", "java"));
+        command.addAll(profile.flagsFor(problemCase.getTimeLimit(), this.archive));
+        command.add("-cp");
         command.add(this.getUnpackedPath().toString());
         command.add(this.getSubmission().getEntryPoint());
 
-        String input = (problemCase.getInput() != null) ? new String(problemCase.getInput()) : null;
-
         try
         {
-            response = this.getEnvironment().execute(
-                    command,
-                    input,
-                    problemCase.getTimeLimit());
+            if (inputFile != null)
+            {
+                response = this.getEnvironment().executeWithInputFile(
+                        command,
+                        inputFile,
+                        problemCase.getTimeLimit());
+            }
+            else
+            {
+                /* A packed case's input goes from its pack to the process
+                 * without a copy on the heap. */
+                response = this.getEnvironment().executeWithInput(
+                        command,
+                        PackedProblem.inputOf(problemCase),
+                        problemCase.getTimeLimit());
+            }
         }
         catch (IOException e)
         {
@@ -76,9 +130,31 @@ public class JavaExecutor extends Executor
                     e);
         }
 
-        /* cputime gives the runtime as the last line of stderr. */
+        /* A submission which exits with an error, say from an uncaught
+         * exception, has failed the case whatever it printed. */
+        if (response.exitCode != EnvironmentResponse.SUCCESS)
+        {
+            String stderr = (response.stderr.length() > MAX_STDERR)
+                    ? response.stderr.substring(0, MAX_STDERR) + "\n[truncated]"
+                    : response.stderr;
+            throw new IOException(
+                    String.format("Problem case \"%s\" exited with code %d: \n%s",
+                            problemCase.getName(), response.exitCode, stderr));
+        }
+
+        /* cputime gives the runtime as the last line of stderr. It may be
+         * missing if the whole container was killed, say for its memory. */
         String[] stderrLines = response.stderr.split("\n");
-        executionCase.setRuntime(Integer.valueOf(stderrLines[stderrLines.length - 1]));
+        try
+        {
+            executionCase.setRuntime(Integer.valueOf(stderrLines[stderrLines.length - 1]));
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IOException(
+                    String.format("No runtime reported for problem case \"%s\"", problemCase.getName()),
+                    e);
+        }
 
         try
         {
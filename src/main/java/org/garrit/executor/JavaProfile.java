@@ -0,0 +1,235 @@
+package org.garrit.executor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The JVM options with which {@link JavaExecutor} runs submissions. Most
+ * submissions live for well under a second, so a large share of their runtime
+ * goes on loading JDK classes and warming up the JIT. A profile can trim both:
+ * a class data sharing archive of commonly used JDK classes, built once per
+ * host and JDK, spares each run from loading them afresh, and cases with short
+ * time limits are run with only the quick-starting C1 compiler.
+ * <p>
+ * Given the memory limit of the containers submissions run in, a profile also
+ * sizes the heap to fit within it and picks the serial collector, which starts
+ * quickest and needs no threads of its own, unless the configured options
+ * already choose.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Slf4j
+public class JavaProfile
+{
+    /**
+     * A profile which runs submissions with the JVM's defaults.
+     */
+    public static final JavaProfile DEFAULT = new JavaProfile(Collections.emptyList(), 0, null);
+
+    /**
+     * The share of the container's memory given to the heap. The rest is left
+     * for the JVM's own structures, thread stacks and anything the submission
+     * runs alongside it.
+     */
+    private static final double HEAP_SHARE = 0.5;
+
+    private static final String CLASS_LIST_RESOURCE = "cds/classlist";
+    private static final int DUMP_TIMEOUT = 300;
+
+    /**
+     * Options given to every run.
+     */
+    @Getter
+    private final List<String> flags;
+    /**
+     * Cases with a time limit of at most this many seconds are run with only
+     * the C1 compiler. 0 disables the distinction.
+     */
+    @Getter
+    private final long quickStartLimit;
+    /**
+     * The class data sharing archive on the host, or null if there is none.
+     */
+    @Getter
+    private final Path archive;
+    /**
+     * The most memory in bytes the container running a submission may use, or
+     * 0 if it is unlimited.
+     */
+    @Getter
+    private final long memoryLimit;
+
+    /**
+     * @param flags options given to every run
+     * @param quickStartLimit the time limit in seconds up to which cases are
+     *            run with only the C1 compiler, or 0
+     * @param archive the class data sharing archive on the host, or null
+     */
+    public JavaProfile(List<String> flags, long quickStartLimit, Path archive)
+    {
+        this(flags, quickStartLimit, archive, 0);
+    }
+
+    /**
+     * @param flags options given to every run
+     * @param quickStartLimit the time limit in seconds up to which cases are
+     *            run with only the C1 compiler, or 0
+     * @param archive the class data sharing archive on the host, or null
+     * @param memoryLimit the container memory limit in bytes from which the
+     *            heap is sized, or 0 to leave sizing to the JVM
+     */
+    public JavaProfile(List<String> flags, long quickStartLimit, Path archive, long memoryLimit)
+    {
+        this.flags = Collections.unmodifiableList(new ArrayList<>(flags));
+        this.quickStartLimit = quickStartLimit;
+        this.archive = archive;
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * Get the JVM options for a run.
+     *
+     * @param timeLimit the case's time limit in seconds
+     * @param containerArchive the path of the archive within the environment,
+     *            or null if it is unavailable there
+     * @return the options
+     */
+    public List<String> flagsFor(long timeLimit, Path containerArchive)
+    {
+        ArrayList<String> flags = new ArrayList<>(this.flags);
+
+        if (this.quickStartLimit > 0 && timeLimit <= this.quickStartLimit)
+            flags.add("-XX:TieredStopAtLevel=1");
+
+        /* Left to itself, the JVM sizes its heap from the host's memory when
+         * it can't see the container's limit, and is killed outright on
+         * reaching the limit rather than throwing OutOfMemoryError. */
+        if (this.memoryLimit > 0)
+        {
+            if (!this.hasFlag("-Xmx") && !this.hasFlag("-XX:MaxHeapSize") && !this.hasFlag("-XX:MaxRAM"))
+                flags.add("-Xmx" + (long) (this.memoryLimit * HEAP_SHARE / (1024 * 1024)) + "m");
+            if (this.flags.stream().noneMatch(flag -> flag.startsWith("-XX:+Use") && flag.endsWith("GC")))
+                flags.add("-XX:+UseSerialGC");
+        }
+
+        /* With -Xshare:auto, an archive the JVM can't use (say, after a JDK
+         * upgrade) is ignored rather than failing the run. */
+        if (containerArchive != null)
+            flags.addAll(Arrays.asList("-Xshare:auto", "-XX:SharedArchiveFile=" + containerArchive));
+
+        return flags;
+    }
+
+    /**
+     * @param prefix the start of an option
+     * @return whether any of the options given to every run starts with it
+     */
+    private boolean hasFlag(String prefix)
+    {
+        return this.flags.stream().anyMatch(flag -> flag.startsWith(prefix));
+    }
+
+    /**
+     * Find or build a class data sharing archive for the host's JDK. Archives
+     * are named after the JDK's version, so each JDK gets its own and an
+     * upgrade leads to a fresh one being built.
+     *
+     * @param directory the directory in which archives are kept
+     * @return the archive, or null if one could not be built
+     */
+    public static Path prepareArchive(Path directory)
+    {
+        try
+        {
+            String version = run(DUMP_TIMEOUT, "java", "-version");
+            Path archive = directory.resolve(
+                    "jdk-" + Digests.hex(Digests.sha256().digest(version.getBytes(StandardCharsets.UTF_8)))
+                            .substring(0, 16) + ".jsa");
+            if (Files.isRegularFile(archive))
+                return archive;
+
+            Files.createDirectories(directory);
+            Path classList = Files.createTempFile(directory, ".classlist-", "");
+            Path scratch = Files.createTempFile(directory, ".incoming-", ".jsa");
+            try
+            {
+                try (InputStream stream = JavaProfile.class.getResourceAsStream(CLASS_LIST_RESOURCE))
+                {
+                    if (stream == null)
+                        throw new IOException("Class list is missing");
+
+                    Files.copy(stream, classList, StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                run(DUMP_TIMEOUT, "java", "-Xshare:dump",
+                        "-XX:SharedClassListFile=" + classList,
+                        "-XX:SharedArchiveFile=" + scratch);
+
+                Files.move(scratch, archive, StandardCopyOption.ATOMIC_MOVE);
+                archive.toFile().setReadable(true, false);
+            }
+            finally
+            {
+                Files.deleteIfExists(classList);
+                Files.deleteIfExists(scratch);
+            }
+
+            log.info("Built class data sharing archive {}", archive);
+            return archive;
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to build class data sharing archive; running submissions without one", e);
+            return null;
+        }
+    }
+
+    /**
+     * Run a command on the host, returning its combined output.
+     */
+    private static String run(int timeout, String... command) throws IOException
+    {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Future<byte[]> output = StreamPump.consume(process.getInputStream());
+        process.getOutputStream().close();
+
+        try
+        {
+            if (!process.waitFor(timeout, TimeUnit.SECONDS))
+            {
+                process.destroyForcibly();
+                throw new IOException(String.format("%s timed out", command[0]));
+            }
+
+            String result = new String(output.get(), StandardCharsets.UTF_8);
+            if (process.exitValue() != 0)
+                throw new IOException(String.format("%s failed (%d): %s", command[0], process.exitValue(), result));
+
+            return result;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running " + command[0], e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException("Failed to read output of " + command[0], e);
+        }
+    }
+}
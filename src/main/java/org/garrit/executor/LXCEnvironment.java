@@ -1,22 +1,40 @@
 package org.garrit.executor;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.garrit.common.messages.SubmissionFile;
+import org.garrit.executor.CpuSlots.CpuSlot;
 
 /**
  * An execution environment which uses <a
@@ -26,28 +44,296 @@ import org.garrit.common.messages.SubmissionFile;
  * @author Samuel Coleman <samuel@seenet.ca>
  * @since 1.0.0
  */
+@Slf4j
 public class LXCEnvironment extends ExecutionEnvironment
 {
-    private static final String CONTAINER_NAME_FORMAT = "garrit-exec-%02x";
+    private static final String CONTAINER_NAME_PREFIX = "garrit-exec-";
+    private static final String CONTAINER_NAME_FORMAT = CONTAINER_NAME_PREFIX + "%02x";
+    private static final int CONTAINER_NAMES = 0x100;
+    /**
+     * Workspaces are named with this prefix followed by the digits
+     * {@link Files#createTempDirectory(Path, String, java.nio.file.attribute.FileAttribute...)}
+     * adds, and nothing else is ever reaped as one.
+     */
+    private static final String WORKSPACE_PREFIX = "garrit-ws-";
+    private static final Pattern WORKSPACE_NAME = Pattern.compile(Pattern.quote(WORKSPACE_PREFIX) + "[0-9]+");
+    /**
+     * The directory in which container roots are created by default, as set
+     * up by the LXC install script.
+     */
+    public static final Path DEFAULT_WORKSPACE_ROOT = Paths.get("/var/lib/garrit/workspaces");
+    /**
+     * The most processes and threads a container may run by default. Threads
+     * count towards the limit, so it must leave room for the JVM's own.
+     */
+    public static final int DEFAULT_PIDS_LIMIT = 512;
+    /**
+     * The most memory in bytes a container may use by default.
+     */
+    public static final long DEFAULT_MEMORY_LIMIT = 2L * 1024 * 1024 * 1024;
+    /**
+     * The only means by which workspaces are mounted, unmounted and removed
+     * with elevated privileges. It refuses anything but a workspace directly
+     * under the workspace root it was installed with.
+     */
+    private static final String WORKSPACE_HELPER = "/usr/local/sbin/garrit-workspace";
+    private static final Path MOUNTS = Paths.get("/proc/mounts");
     private static final String SUBMISSIONS_PATH = "garrit/submission";
     private static final String INPUT_PATH = "garrit/input";
+    private static final String MOUNTS_PATH = "garrit";
+    private static final String RUNS_PATH = "garrit/runs";
+    private static final String AGENT_MOUNT = "agent";
 
     private static final int LXC_ADMIN_TIMEOUT = 10;
+    /**
+     * Time in seconds allowed on top of a command's timeout for the agent to
+     * answer.
+     */
+    private static final int AGENT_GRACE = 10;
+    private static final int AGENT_STOP_TIMEOUT = 5;
+    private static final String TIMEOUT_MESSAGE = "Child process failed to complete in a timely manner";
+    /**
+     * Time in seconds allowed for a timed-out container to be confirmed
+     * stopped.
+     */
+    private static final int RECLAIM_TIMEOUT = 10;
+    private static final long RECLAIM_POLL_INTERVAL = 50;
+    private static final String STOPPED_STATE = "STOPPED";
+
+    private static final String CPUSET_KEY = "cpuset.cpus";
+    private static final String PIDS_KEY = "pids.max";
+    private static final String MEMORY_KEY_V1 = "memory.limit_in_bytes";
+    private static final String MEMORY_KEY_V2 = "memory.max";
+    private static final String MOUNT_KEY = "lxc.mount.entry";
+    private static final String NO_SPACE_MESSAGE = "No space left on device";
+
+    /**
+     * The directory in which container roots are created. It must be
+     * dedicated to them, since anything in it which looks like a workspace is
+     * liable to be reaped.
+     */
+    private static volatile Path workspaceRoot = DEFAULT_WORKSPACE_ROOT;
+    /**
+     * The size of the tmpfs mounted over each container root (as accepted by
+     * <code>mount -o size=</code>), or null to keep container roots on disk.
+     */
+    private static volatile String tmpfsQuota = null;
+    /**
+     * Whether to run commands through an {@link ContainerAgent agent} started
+     * once per container, rather than through a fresh
+     * <code>lxc-execute</code> per command.
+     */
+    private static volatile boolean agentEnabled = false;
+    /**
+     * The number of bytes of each stream of a command's output retained.
+     */
+    private static volatile long outputLimit = Long.MAX_VALUE;
+    /**
+     * The version of the host's cgroup hierarchy, which decides the keys by
+     * which containers are confined.
+     */
+    private static volatile int cgroupVersion = 1;
+    /**
+     * The most processes and threads a container may run, or 0 for no limit.
+     */
+    private static volatile int pidsLimit = DEFAULT_PIDS_LIMIT;
+    /**
+     * The most memory in bytes a container may use, or 0 for no limit.
+     */
+    private static volatile long memoryLimit = DEFAULT_MEMORY_LIMIT;
+
+    /**
+     * Container names and workspaces belonging to environments which have not
+     * yet been closed. Both are guarded by {@link #registry}.
+     */
+    private static final HashSet<String> activeContainers = new HashSet<>();
+    private static final HashSet<Path> activeWorkspaces = new HashSet<>();
+    private static final Object registry = new Object();
+
+    /**
+     * A directory holding nothing but the agent's class, mounted into
+     * containers in place of the executor's own classes, or null until an
+     * agent is first started. Guarded by the class.
+     */
+    private static Path agentClasses = null;
 
     private final String containerName;
     private final Path containerRoot;
+    /**
+     * The cores to which commands are confined, or null if they may run on any
+     * core.
+     */
+    private CpuSlot slot;
+    /**
+     * The size of the tmpfs backing the container root, or null if it is on
+     * disk.
+     */
+    private final String quota;
+    /**
+     * Directories on the host to bind-mount read-only into each command's
+     * container, keyed by their path within the container.
+     */
+    private final LinkedHashMap<String, Path> mounts = new LinkedHashMap<>();
+    /**
+     * The agent running inside the container, or null if none is running.
+     */
+    private Process agent = null;
+    private Writer agentRequests;
+    private LinkedBlockingQueue<String> agentResponses;
+    private Future<byte[]> agentErrors;
+    /**
+     * Held while the environment's state is used or changed. Commands block
+     * while holding it, so it is a lock rather than the environment's monitor,
+     * which would pin a virtual thread to its carrier for the whole command.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
 
     public LXCEnvironment() throws IOException
     {
+        this(null);
+    }
+
+    /**
+     * @param slot the cores to which commands should be confined, or null to
+     *            allow commands to run on any core
+     */
+    public LXCEnvironment(CpuSlot slot) throws IOException
+    {
+        this.slot = slot;
+        this.quota = tmpfsQuota;
         this.containerName = generateContainerName();
-        this.containerRoot = Files.createTempDirectory("garrit");
 
-        executeCommand(
-                Arrays.asList(
-                        "sudo", "lxc-create", "-t", "garrit", "-n", this.containerName, "--dir",
-                        this.containerRoot.toString()),
-                null,
-                LXC_ADMIN_TIMEOUT);
+        synchronized (registry)
+        {
+            try
+            {
+                this.containerRoot = Files.createTempDirectory(workspaceRoot, WORKSPACE_PREFIX);
+            }
+            catch (IOException e)
+            {
+                activeContainers.remove(this.containerName);
+                throw e;
+            }
+
+            activeWorkspaces.add(this.containerRoot);
+        }
+
+        try
+        {
+            if (this.quota != null)
+                executeCommand(
+                        Arrays.asList(
+                                "sudo", WORKSPACE_HELPER, "mount", this.quota, this.containerRoot.toString()),
+                        null,
+                        LXC_ADMIN_TIMEOUT);
+
+            executeCommand(
+                    Arrays.asList(
+                            "sudo", "lxc-create", "-t", "garrit", "-n", this.containerName, "--dir",
+                            this.containerRoot.toString()),
+                    null,
+                    LXC_ADMIN_TIMEOUT);
+        }
+        catch (IOException e)
+        {
+            try
+            {
+                this.close();
+            }
+            catch (IOException closeException)
+            {
+                e.addSuppressed(closeException);
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Set where container roots are created. Applies to environments created
+     * afterwards.
+     * 
+     * @param root the directory in which to create container roots, which
+     *            must be the workspace root the workspace helper was installed
+     *            with, or null for {@link #DEFAULT_WORKSPACE_ROOT}
+     * @param quota the size of a tmpfs to mount over each container root, or
+     *            null to keep container roots on disk
+     */
+    public static void configureWorkspaces(Path root, String quota)
+    {
+        workspaceRoot = (root != null) ? root : DEFAULT_WORKSPACE_ROOT;
+        tmpfsQuota = quota;
+    }
+
+    /**
+     * Set whether commands are run through an {@link ContainerAgent agent}
+     * started once per container. Applies to environments created afterwards.
+     * 
+     * @param enabled whether to use an agent
+     */
+    public static void configureAgent(boolean enabled)
+    {
+        agentEnabled = enabled;
+    }
+
+    /**
+     * Set how much of each stream of a command's output is retained, so that
+     * a submission flooding its output cannot exhaust the executor's memory.
+     * Applies to commands run afterwards.
+     * 
+     * @param limit the number of bytes of each stream to retain
+     */
+    public static void configureOutputLimit(long limit)
+    {
+        outputLimit = limit;
+    }
+
+    /**
+     * Set the limits within which containers run, and the version of the
+     * host's cgroup hierarchy through which they are enforced. Applies to
+     * commands run afterwards.
+     * 
+     * @param version the cgroup version: 1 or 2
+     * @param pids the most processes and threads a container may run, or 0
+     *            for no limit
+     * @param memory the most memory in bytes a container may use, or 0 for no
+     *            limit
+     */
+    public static void configureLimits(int version, int pids, long memory)
+    {
+        if (version != 1 && version != 2)
+            throw new IllegalArgumentException("Unsupported cgroup version " + version);
+
+        cgroupVersion = version;
+        pidsLimit = pids;
+        memoryLimit = memory;
+    }
+
+    /**
+     * @return the <code>lxc-execute</code> options applying the configured
+     *         process and memory limits
+     */
+    static List<String> limitOptions()
+    {
+        ArrayList<String> options = new ArrayList<>(4);
+        if (pidsLimit > 0)
+            options.addAll(Arrays.asList("-s", cgroupKey(PIDS_KEY) + "=" + pidsLimit));
+        if (memoryLimit > 0)
+            options.addAll(Arrays.asList("-s",
+                    cgroupKey((cgroupVersion == 2) ? MEMORY_KEY_V2 : MEMORY_KEY_V1) + "=" + memoryLimit));
+
+        return options;
+    }
+
+    /**
+     * @param controllerKey a cgroup controller's file, such as
+     *            <code>pids.max</code>
+     * @return the LXC configuration key setting it under the host's cgroup
+     *         version
+     */
+    private static String cgroupKey(String controllerKey)
+    {
+        return ((cgroupVersion == 2) ? "lxc.cgroup2." : "lxc.cgroup.") + controllerKey;
     }
 
     @Override
@@ -58,139 +344,906 @@ public class LXCEnvironment extends ExecutionEnvironment
         for (SubmissionFile file : files)
         {
             Path submissionPath = submissionsRoot.resolve(file.getFilename());
-            try (FileOutputStream stream = new FileOutputStream(submissionPath.toFile()))
+
+            if (file instanceof SpooledSubmissionFile)
             {
-                stream.write(file.getContents());
+                try
+                {
+                    Files.createDirectories(submissionPath.getParent());
+                    Files.copy(((SpooledSubmissionFile) file).getSource(), submissionPath);
+                }
+                catch (IOException e)
+                {
+                    throw quotaExceeded(e);
+                }
+
+                continue;
+            }
+
+            /* Retrieved files, such as compiled classes in packages, may be
+             * nested. */
+            try
+            {
+                Files.createDirectories(submissionPath.getParent());
+                Files.write(submissionPath, file.getContents());
+            }
+            catch (IOException e)
+            {
+                throw quotaExceeded(e);
             }
         }
 
         return Paths.get("/").resolve(SUBMISSIONS_PATH);
     }
 
+    @Override
+    public List<SubmissionFile> retrieve(Path directory, String suffix) throws IOException
+    {
+        Path relative = Paths.get("/").relativize(directory).normalize();
+        if (relative.startsWith(".."))
+            return null;
+
+        Path hostDirectory = confined(this.containerRoot, relative.toString());
+
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(hostDirectory))
+        {
+            paths = walk.filter(path -> path.getFileName().toString().endsWith(suffix))
+                    .filter(path -> Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS))
+                    .collect(Collectors.toList());
+        }
+
+        ArrayList<SubmissionFile> files = new ArrayList<>(paths.size());
+        for (Path path : paths)
+        {
+            /* The submission owns the directory, so refuse a file swapped for
+             * a link since it was listed. */
+            SubmissionFile file = new SubmissionFile();
+            file.setFilename(hostDirectory.relativize(path).toString());
+            file.setContents(StreamPump.drain(
+                    Files.newInputStream(path, StandardOpenOption.READ, LinkOption.NOFOLLOW_LINKS), Long.MAX_VALUE));
+            files.add(file);
+        }
+
+        return files;
+    }
+
     @Override
     public Path unpackInput(byte[] input) throws IOException
     {
-        Path inputPath = Files.createTempFile(this.containerRoot.resolve(INPUT_PATH), "case-", ".in");
+        Path inputPath = Files.createTempFile(confined(this.containerRoot, INPUT_PATH), "case-", ".in");
 
         try (FileOutputStream stream = new FileOutputStream(inputPath.toFile()))
         {
             stream.write(input);
         }
+        catch (IOException e)
+        {
+            throw quotaExceeded(e);
+        }
 
         return Paths.get("/").resolve(INPUT_PATH);
     }
 
+    /**
+     * Translate a failure to write into the workspace into a
+     * {@link WorkspaceQuotaException} if it was caused by the workspace's
+     * tmpfs being full. A disk-backed workspace running out of space is the
+     * host's problem, not the submission's, so it is left as it is.
+     * 
+     * @param e the failure
+     * @return the exception to throw
+     */
+    private IOException quotaExceeded(IOException e)
+    {
+        if (this.quota != null && e.getMessage() != null && e.getMessage().contains(NO_SPACE_MESSAGE))
+            return new WorkspaceQuotaException(
+                    String.format("Submission exceeded the workspace quota of %s", this.quota), e);
+
+        return e;
+    }
+
     @Override
-    public EnvironmentResponse execute(List<String> command, String input, long timeout) throws IOException
+    public void setSlot(CpuSlot slot)
     {
-        ArrayList<String> wrappedCommand = new ArrayList<>(command.size() + 5);
-        wrappedCommand.addAll(Arrays.asList("sudo", "lxc-execute", "-n", this.containerName, "--"));
+        this.lock.lock();
+        try
+        {
+            /* As with mounts, a running agent stays on the cores it started on. */
+            if (slot != this.slot)
+                this.stopAgent();
+
+            this.slot = slot;
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Path mountReadOnly(Path directory, String name)
+    {
+        this.lock.lock();
+        try
+        {
+            String target = MOUNTS_PATH + "/" + name;
+            Path previous = this.mounts.put(target, directory.toAbsolutePath());
+
+            /* A running agent's container was set up without the mount; the
+             * next command starts a fresh one. */
+            if (!directory.toAbsolutePath().equals(previous))
+                this.stopAgent();
+
+            return Paths.get("/").resolve(target);
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public EnvironmentResponse execute(List<String> command, String input, long timeout)
+            throws IOException
+    {
+        return this.executeWithInput(command, encode(input), timeout);
+    }
+
+    @Override
+    public EnvironmentResponse executeWithInput(List<String> command, ByteBuffer input, long timeout)
+            throws IOException
+    {
+        this.lock.lock();
+        try
+        {
+            if (agentEnabled)
+                return this.executeThroughAgent(command, input, this.scaleTimeout(timeout));
+
+            return executeCommand(this.lxcExecute(command), input, this.scaleTimeout(timeout), this);
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Kill everything running in the container, and wait until the container
+     * is confirmed stopped. The container is frozen first, so nothing can fork
+     * faster than it is killed, and thawed once killed so that the kills are
+     * delivered.
+     * 
+     * @return the time taken in milliseconds, or -1 if the container could not
+     *         be confirmed stopped
+     */
+    private long reclaim()
+    {
+        long started = System.nanoTime();
+
+        try
+        {
+            executeCommand(Arrays.asList("sudo", "lxc-freeze", "-n", this.containerName), null, LXC_ADMIN_TIMEOUT);
+        }
+        catch (IOException e)
+        {
+            log.debug("Failed to freeze container " + this.containerName, e);
+        }
+
+        try
+        {
+            executeCommand(Arrays.asList("sudo", "lxc-stop", "-k", "-n", this.containerName), null,
+                    LXC_ADMIN_TIMEOUT);
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to kill container " + this.containerName, e);
+        }
+
+        try
+        {
+            executeCommand(Arrays.asList("sudo", "lxc-unfreeze", "-n", this.containerName), null,
+                    LXC_ADMIN_TIMEOUT);
+        }
+        catch (IOException e)
+        {
+            /* It's not frozen if it's already stopped. */
+        }
+
+        long deadline = started + TimeUnit.SECONDS.toNanos(RECLAIM_TIMEOUT);
+        try
+        {
+            while (System.nanoTime() < deadline)
+            {
+                EnvironmentResponse response = executeCommand(
+                        Arrays.asList("sudo", "lxc-info", "-s", "-n", this.containerName), null, LXC_ADMIN_TIMEOUT);
+                if (response.exitCode == EnvironmentResponse.SUCCESS && response.stdout.contains(STOPPED_STATE))
+                {
+                    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                    log.info("Reclaimed container {} in {} ms", this.containerName, elapsed);
+                    return elapsed;
+                }
+
+                TimeUnit.MILLISECONDS.sleep(RECLAIM_POLL_INTERVAL);
+            }
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to query state of container " + this.containerName, e);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        log.error("Failed to confirm container {} stopped; its processes may still be running", this.containerName);
+        return -1;
+    }
+
+    /**
+     * Wrap a command to be run in the container by <code>lxc-execute</code>.
+     * 
+     * @param command the command
+     * @return the wrapped command
+     */
+    private List<String> lxcExecute(List<String> command)
+    {
+        ArrayList<String> wrappedCommand = new ArrayList<>(command.size() + 11);
+        wrappedCommand.addAll(Arrays.asList("sudo", "lxc-execute", "-n", this.containerName));
+        if (this.slot != null)
+            wrappedCommand.addAll(Arrays.asList("-s", cgroupKey(CPUSET_KEY) + "=" + this.slot.getCpuList()));
+        wrappedCommand.addAll(limitOptions());
+        for (Map.Entry<String, Path> mount : this.mounts.entrySet())
+            wrappedCommand.addAll(Arrays.asList("-s",
+                    MOUNT_KEY + "=" + mount.getValue() + " " + mount.getKey() + " none ro,bind,create=dir 0 0"));
+        wrappedCommand.add("--");
         wrappedCommand.addAll(command);
 
-        return executeCommand(wrappedCommand, input, timeout);
+        return wrappedCommand;
     }
 
+    /**
+     * Run a command through the container's agent, starting the agent if it
+     * is not already running. If the agent stops answering it is killed, and
+     * the next command starts a fresh one.
+     * 
+     * @param command the command
+     * @param input stdin for the command, which is consumed, or null
+     * @param timeout the timeout for the command in seconds
+     * @return the output of the command
+     * @throws IOException if the command could not be run or timed out
+     */
+    private EnvironmentResponse executeThroughAgent(List<String> command, ByteBuffer input, long timeout)
+            throws IOException
+    {
+        if (this.agent == null)
+            this.startAgent();
+
+        /* Everything under the container root is the container's to tamper
+         * with, so nothing is followed out of it. Run IDs are unguessable, and
+         * a run directory the container made ahead of time is refused rather
+         * than reused. */
+        String id = String.valueOf(ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE));
+        Path run = confined(this.containerRoot, RUNS_PATH).resolve(id);
+        Files.createDirectory(run);
+        try
+        {
+            Files.write(run.resolve(ContainerAgent.COMMAND_FILE),
+                    String.join("\0", command).getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, LinkOption.NOFOLLOW_LINKS);
+            if (input != null)
+            {
+                try (FileChannel channel = FileChannel.open(run.resolve(ContainerAgent.STDIN_FILE),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, LinkOption.NOFOLLOW_LINKS))
+                {
+                    PackedProblem.writeFully(channel, input);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            deleteRun(run);
+            throw quotaExceeded(e);
+        }
+
+        try
+        {
+            return this.awaitAgent(id, run, timeout);
+        }
+        finally
+        {
+            deleteRun(run);
+        }
+    }
+
+    /**
+     * Ask the agent to run a command already laid out in its run directory,
+     * and collect the result.
+     * 
+     * @param id the run's ID
+     * @param run the run's directory on the host
+     * @param timeout the timeout for the command in seconds
+     * @return the output of the command
+     * @throws IOException if the command could not be run or timed out
+     */
+    private EnvironmentResponse awaitAgent(String id, Path run, long timeout) throws IOException
+    {
+        String response;
+        try
+        {
+            this.agentRequests.write("RUN " + id + " " + timeout + "\n");
+            this.agentRequests.flush();
+
+            response = this.agentResponses.poll(timeout + AGENT_GRACE, TimeUnit.SECONDS);
+        }
+        catch (IOException e)
+        {
+            this.stopAgent();
+            throw new IOException("Failed to send command to agent", e);
+        }
+        catch (InterruptedException e)
+        {
+            this.stopAgent();
+            throw new IOException("Interrupted while waiting for agent", e);
+        }
+
+        if (response == null || response.equals(StreamPump.END_OF_LINES))
+        {
+            long reclaimTime = this.reclaim();
+            this.stopAgent();
+            throw new ExecutionTimeoutException(TIMEOUT_MESSAGE, reclaimTime);
+        }
+
+        String[] fields = response.split(" ", 3);
+        if (fields.length < 2 || !fields[1].equals(id))
+        {
+            this.stopAgent();
+            throw new IOException("Unexpected response from agent: " + response);
+        }
+
+        switch (fields[0])
+        {
+            case "DONE":
+                /* By now the agent has killed anything the command left
+                 * running in the background, so nothing can swap the files
+                 * between being checked and being read. */
+                String stdout = new String(this.readRunOutput(run, ContainerAgent.STDOUT_FILE),
+                        StandardCharsets.UTF_8);
+                String stderr = new String(this.readRunOutput(run, ContainerAgent.STDERR_FILE),
+                        StandardCharsets.UTF_8);
+                return new EnvironmentResponse(Integer.parseInt(fields[2]), stdout, stderr);
+            case "TIMEOUT":
+                /* The agent only kills the command itself; anything it forked
+                 * goes down with the container, agent included. */
+                long reclaimTime = this.reclaim();
+                this.stopAgent();
+                throw new ExecutionTimeoutException(TIMEOUT_MESSAGE, reclaimTime);
+            default:
+                /* The agent may have left processes running which it could
+                 * not kill; nothing in the container can be trusted. */
+                this.reclaim();
+                this.stopAgent();
+                throw new IOException("Agent failed to run command: " + ((fields.length > 2) ? fields[2] : response));
+        }
+    }
+
+    /**
+     * Delete a run's directory once its output has been read, so that later
+     * runs can neither read nor overwrite it. Anything the container has
+     * made undeletable goes with the workspace.
+     * 
+     * @param run the run's directory on the host
+     */
+    /**
+     * Read one of a finished run's outputs. Only a regular file within the run
+     * directory is read: the container may have left a link to a file on the
+     * host, or a FIFO which would block the read forever.
+     * 
+     * @param run the run's directory on the host
+     * @param name the name of the output file
+     * @return the retained contents of the file
+     * @throws IOException if the file is missing, not a regular file, or
+     *             cannot be read
+     */
+    private byte[] readRunOutput(Path run, String name) throws IOException
+    {
+        Path output = confined(this.containerRoot, RUNS_PATH + "/" + run.getFileName()).resolve(name);
+        if (!Files.isRegularFile(output, LinkOption.NOFOLLOW_LINKS))
+            throw new IOException("Agent run output " + name + " is not a regular file");
+
+        return StreamPump.drain(Files.newInputStream(output, StandardOpenOption.READ, LinkOption.NOFOLLOW_LINKS),
+                outputLimit);
+    }
+
+    /**
+     * Resolve a directory within the container root, checking that no link
+     * along the way leads out of it. Whatever runs in the container can
+     * replace any directory in its root with a link to one on the host.
+     * 
+     * @param root the container root on the host
+     * @param relative the directory's path relative to the container root
+     * @return the directory on the host
+     * @throws IOException if the directory is missing, or reached through a
+     *             link
+     */
+    static Path confined(Path root, String relative) throws IOException
+    {
+        Path expected = root.toRealPath().resolve(relative);
+        Path directory = root.resolve(relative);
+        if (!directory.toRealPath().equals(expected) || !Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS))
+            throw new IOException("Container directory " + relative + " has been replaced");
+
+        return directory;
+    }
+
+    private static void deleteRun(Path run)
+    {
+        try
+        {
+            if (!Files.exists(run))
+                return;
+
+            List<Path> paths;
+            try (Stream<Path> walk = Files.walk(run))
+            {
+                paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            }
+
+            for (Path path : paths)
+                Files.deleteIfExists(path);
+        }
+        catch (IOException e)
+        {
+            log.debug("Failed to delete agent run " + run, e);
+        }
+    }
+
+    /**
+     * Get a directory holding a copy of the agent's class and nothing else,
+     * creating it if need be. The executor's own classes, and whatever sits
+     * beside its jar, never enter a container.
+     * 
+     * @return the directory
+     * @throws IOException if the class cannot be copied
+     */
+    private static synchronized Path agentClasses() throws IOException
+    {
+        if (agentClasses != null)
+            return agentClasses;
+
+        String resource = ContainerAgent.class.getName().replace('.', '/') + ".class";
+        Path directory = Files.createTempDirectory("executor-agent-");
+        Path classFile = directory.resolve(resource);
+        Files.createDirectories(classFile.getParent());
+
+        try (InputStream stream = ContainerAgent.class.getClassLoader().getResourceAsStream(resource))
+        {
+            if (stream == null)
+                throw new IOException("Failed to locate agent class " + resource);
+
+            Files.copy(stream, classFile);
+        }
+
+        for (Path path = classFile; !path.equals(directory.getParent()); path = path.getParent())
+        {
+            path.toFile().setReadable(true, false);
+            path.toFile().setExecutable(Files.isDirectory(path), false);
+        }
+
+        agentClasses = directory;
+        return directory;
+    }
+
+    private void startAgent() throws IOException
+    {
+        Path mounted = this.mountReadOnly(agentClasses(), AGENT_MOUNT);
+
+        Files.createDirectories(this.containerRoot.resolve(RUNS_PATH));
+
+        Process process = new ProcessBuilder(this.lxcExecute(Arrays.asList(
+                "java", "-Xshare:auto", "-XX:TieredStopAtLevel=1", "-cp", mounted.toString(),
+                ContainerAgent.class.getName(), Paths.get("/").resolve(RUNS_PATH).toString()))).start();
+
+        this.agent = process;
+        this.agentRequests = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+        this.agentResponses = new LinkedBlockingQueue<>();
+        StreamPump.readLines(process.getInputStream(), this.agentResponses);
+        this.agentErrors = StreamPump.consume(process.getErrorStream());
+
+        log.debug("Started agent in container {}", this.containerName);
+    }
+
+    /**
+     * Ask the agent to exit, killing it if it does not.
+     */
+    private void stopAgent()
+    {
+        Process process = this.agent;
+        if (process == null)
+            return;
+
+        this.agent = null;
+
+        try
+        {
+            this.agentRequests.write("EXIT\n");
+            this.agentRequests.close();
+        }
+        catch (IOException e)
+        {
+            /* It may already be gone. */
+        }
+
+        try
+        {
+            if (!process.waitFor(AGENT_STOP_TIMEOUT, TimeUnit.SECONDS))
+                process.destroyForcibly();
+        }
+        catch (InterruptedException e)
+        {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+
+        if (!process.isAlive() && process.exitValue() != 0)
+        {
+            try
+            {
+                log.warn("Agent in container {} exited with {}: {}", this.containerName, process.exitValue(),
+                        consumed(this.agentErrors));
+            }
+            catch (IOException e)
+            {
+                log.warn("Agent in container {} exited with {}", this.containerName, process.exitValue());
+            }
+        }
+    }
+
+    /**
+     * Destroy the container and delete its workspace. Every step is attempted
+     * even if an earlier one fails, and the container's name and workspace
+     * are released either way; anything left behind is later removed by
+     * {@link #reapOrphans()}.
+     */
     @Override
     public void close() throws IOException
     {
-        executeCommand(Arrays.asList("sudo", "lxc-destroy", "-n", this.containerName),
-                null,
-                LXC_ADMIN_TIMEOUT);
+        this.lock.lock();
+        try
+        {
+            IOException failure = null;
+
+            this.stopAgent();
+
+            try
+            {
+                executeCommand(Arrays.asList("sudo", "lxc-destroy", "-f", "-n", this.containerName),
+                        null,
+                        LXC_ADMIN_TIMEOUT);
+            }
+            catch (IOException e)
+            {
+                failure = e;
+            }
+
+            try
+            {
+                removeWorkspace(this.containerRoot);
+            }
+            catch (IOException e)
+            {
+                if (failure == null)
+                    failure = e;
+                else
+                    failure.addSuppressed(e);
+            }
+
+            synchronized (registry)
+            {
+                activeContainers.remove(this.containerName);
+                activeWorkspaces.remove(this.containerRoot);
+            }
+
+            if (failure != null)
+                throw failure;
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
     }
 
-    private static String generateContainerName() throws IOException
+    /**
+     * Destroy any Garrit containers and delete any workspaces which do not
+     * belong to a live environment, such as those left behind by a crash. This
+     * assumes that a single executor runs on the host.
+     * 
+     * @throws IOException if the containers or workspaces cannot be listed
+     */
+    public static void reapOrphans() throws IOException
+    {
+        for (String container : listContainers())
+        {
+            if (!container.startsWith(CONTAINER_NAME_PREFIX))
+                continue;
+
+            synchronized (registry)
+            {
+                if (activeContainers.contains(container))
+                    continue;
+            }
+
+            log.warn("Destroying orphaned container {}", container);
+            try
+            {
+                executeCommand(Arrays.asList("sudo", "lxc-destroy", "-f", "-n", container),
+                        null,
+                        LXC_ADMIN_TIMEOUT);
+            }
+            catch (IOException e)
+            {
+                log.error("Failed to destroy orphaned container " + container, e);
+            }
+        }
+
+        /* Never sweep a directory shared with anything else, where other
+         * users' files may match the workspace prefix. */
+        Path root = workspaceRoot.toAbsolutePath().normalize();
+        if (root.equals(Paths.get(System.getProperty("java.io.tmpdir")).toAbsolutePath().normalize())
+                || root.getParent() == null)
+        {
+            log.warn("Workspace root {} is not dedicated to workspaces; not reaping orphaned workspaces", root);
+            return;
+        }
+
+        for (Path workspace : orphanedWorkspaces(root))
+        {
+            log.warn("Deleting orphaned workspace {}", workspace);
+            try
+            {
+                removeWorkspace(workspace);
+            }
+            catch (IOException e)
+            {
+                log.error("Failed to delete orphaned workspace " + workspace, e);
+            }
+        }
+    }
+
+    /**
+     * Find the workspaces under a workspace root which do not belong to a
+     * live environment. Only directories named exactly as this class names
+     * workspaces are candidates, so neighbours such as the archive spool are
+     * never mistaken for one.
+     * 
+     * @param root the workspace root
+     * @return the orphaned workspaces
+     * @throws IOException if the workspace root cannot be listed
+     */
+    static List<Path> orphanedWorkspaces(Path root) throws IOException
+    {
+        ArrayList<Path> orphans = new ArrayList<>();
+        if (!Files.isDirectory(root))
+            return orphans;
+
+        try (DirectoryStream<Path> workspaces = Files.newDirectoryStream(root, WORKSPACE_PREFIX + "*"))
+        {
+            for (Path workspace : workspaces)
+            {
+                if (!WORKSPACE_NAME.matcher(workspace.getFileName().toString()).matches()
+                        || !Files.isDirectory(workspace, LinkOption.NOFOLLOW_LINKS))
+                    continue;
+
+                synchronized (registry)
+                {
+                    if (activeWorkspaces.contains(workspace))
+                        continue;
+                }
+
+                orphans.add(workspace);
+            }
+        }
+
+        return orphans;
+    }
+
+    /**
+     * Unmount and delete a workspace. Files in the workspace may be owned by
+     * the container's root user, so deletion is done with elevated
+     * privileges, through the {@link #WORKSPACE_HELPER workspace helper}.
+     * 
+     * @param workspace the workspace
+     * @throws IOException if the workspace could not be removed
+     */
+    private static void removeWorkspace(Path workspace) throws IOException
+    {
+        if (isMountPoint(workspace))
+            executeCommand(Arrays.asList("sudo", WORKSPACE_HELPER, "umount", workspace.toString()),
+                    null,
+                    LXC_ADMIN_TIMEOUT);
+
+        if (Files.exists(workspace))
+            executeCommand(Arrays.asList("sudo", WORKSPACE_HELPER, "remove", workspace.toString()),
+                    null,
+                    LXC_ADMIN_TIMEOUT);
+    }
+
+    private static boolean isMountPoint(Path path) throws IOException
+    {
+        String target = path.toAbsolutePath().toString();
+
+        for (String mount : Files.readAllLines(MOUNTS, StandardCharsets.UTF_8))
+        {
+            String[] fields = mount.split(" ");
+            if (fields.length > 1 && fields[1].equals(target))
+                return true;
+        }
+
+        return false;
+    }
+
+    private static List<String> listContainers() throws IOException
     {
         EnvironmentResponse response = executeCommand(Arrays.asList("sudo", "lxc-ls", "-1"),
                 null,
                 LXC_ADMIN_TIMEOUT);
-        List<String> existingContainers = Arrays.asList(response.stdout.split("\n"));
 
-        String containerName;
+        ArrayList<String> containers = new ArrayList<>();
+        for (String container : response.stdout.split("\n"))
+            if (!container.trim().isEmpty())
+                containers.add(container.trim());
 
-        do
+        return containers;
+    }
+
+    /**
+     * Pick and reserve a container name which is neither in use by a live
+     * environment nor taken by an existing container.
+     * 
+     * @return the container name
+     * @throws IOException if no name is available
+     */
+    private static String generateContainerName() throws IOException
+    {
+        List<String> existingContainers = listContainers();
+
+        synchronized (registry)
         {
-            containerName = String.format(CONTAINER_NAME_FORMAT, (int) (Math.random() * 255));
-        } while (existingContainers.contains(containerName));
+            ArrayList<String> available = new ArrayList<>(CONTAINER_NAMES);
+            for (int i = 0; i < CONTAINER_NAMES; i++)
+            {
+                String containerName = String.format(CONTAINER_NAME_FORMAT, i);
+                if (!existingContainers.contains(containerName) && !activeContainers.contains(containerName))
+                    available.add(containerName);
+            }
+
+            if (available.isEmpty())
+                throw new IOException("No container names are available");
+
+            String containerName = available.get(ThreadLocalRandom.current().nextInt(available.size()));
+            activeContainers.add(containerName);
 
-        return containerName;
+            return containerName;
+        }
     }
 
-    private static EnvironmentResponse executeCommand(List<String> command, String input, long timeout)
+    static EnvironmentResponse executeCommand(List<String> command, String input, long timeout)
             throws IOException
+    {
+        return executeCommand(command, encode(input), timeout, null);
+    }
+
+    /**
+     * @param input text, or null
+     * @return the text encoded as UTF-8, or null
+     */
+    private static ByteBuffer encode(String input)
+    {
+        return (input != null) ? ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)) : null;
+    }
+
+    /**
+     * Run a command on the host. If the command times out or the wait for it
+     * is interrupted, the command is killed, along with everything running in
+     * the container it was run in, if any.
+     * 
+     * @param command the command
+     * @param input stdin for the command, which is consumed, or null
+     * @param timeout the timeout for the command in seconds
+     * @param container the environment whose container the command runs in,
+     *            or null
+     * @return the output of the command
+     * @throws ExecutionTimeoutException if the command timed out
+     * @throws IOException if the command could not be run
+     */
+    private static EnvironmentResponse executeCommand(List<String> command, ByteBuffer input, long timeout,
+            LXCEnvironment container) throws IOException
     {
         ProcessBuilder builder = new ProcessBuilder(command);
         Process process = builder.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout);
 
-        StreamConsumer stdoutConsumer = new StreamConsumer(process.getInputStream());
-        StreamConsumer stderrConsumer = new StreamConsumer(process.getErrorStream());
-
-        stdoutConsumer.start();
-        stderrConsumer.start();
+        long limit = (container != null) ? outputLimit : Long.MAX_VALUE;
+        Future<byte[]> stdoutConsumer = StreamPump.consume(process.getInputStream(), limit);
+        Future<byte[]> stderrConsumer = StreamPump.consume(process.getErrorStream(), limit);
 
+        /* Feed stdin alongside the wait rather than before it, so that a
+         * command which never reads its input still times out. */
+        Future<?> stdinFeeder = null;
         if (input != null)
-        {
-            BufferedOutputStream stdinStream = new BufferedOutputStream(process.getOutputStream());
-            stdinStream.write(input.getBytes());
-            stdinStream.close();
-        }
+            stdinFeeder = StreamPump.feed(process.getOutputStream(), input);
 
         boolean finished;
         try
         {
-            finished = process.waitFor(timeout, TimeUnit.SECONDS);
+            finished = process.waitFor(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
         }
         catch (InterruptedException e)
         {
-            process.destroyForcibly();
+            if (container != null)
+                container.reclaim();
+
+            abandon(process, stdinFeeder);
             throw new IOException("Interrupted while waiting for child process", e);
         }
 
+        /* Killing the local sudo alone would leave the container's processes
+         * running, so take down the container first. */
         if (!finished)
         {
-            throw new IOException("Child process failed to complete in a timely manner");
+            long reclaimTime = (container != null) ? container.reclaim() : -1;
+            abandon(process, stdinFeeder);
+            throw new ExecutionTimeoutException(TIMEOUT_MESSAGE, reclaimTime);
         }
 
         int exitCode = process.exitValue();
-        String stdout = stdoutConsumer.getConsumed();
-        String stderr = stderrConsumer.getConsumed();
+        String stdout = consumed(stdoutConsumer);
+        String stderr = consumed(stderrConsumer);
 
         process.destroy();
 
         return new EnvironmentResponse(exitCode, stdout, stderr);
     }
 
-    @RequiredArgsConstructor
-    @Slf4j
-    private static class StreamConsumer extends Thread
+    /**
+     * Kill a command which is no longer waited for. Killing it breaks its
+     * stdin pipe, which stops any write still blocked on it; the write is
+     * cancelled outright if it hasn't started. It isn't interrupted, as
+     * closing a pipe stream from another thread waits for the write to
+     * finish.
+     *
+     * @param process the command
+     * @param stdinFeeder the pending write of the command's stdin, or null
+     */
+    private static void abandon(Process process, Future<?> stdinFeeder)
     {
-        private final InputStream stream;
-        private final StringBuilder builder = new StringBuilder();
+        process.destroyForcibly();
+        if (stdinFeeder != null)
+            stdinFeeder.cancel(false);
+    }
 
-        @Override
-        public void run()
+    /**
+     * Wait for a stream being drained by the {@link StreamPump pump} to reach
+     * its end.
+     * 
+     * @param consumer the pending stream contents
+     * @return the contents of the stream
+     * @throws IOException if the stream could not be read
+     */
+    private static String consumed(Future<byte[]> consumer) throws IOException
+    {
+        try
         {
-            try
-            {
-                BufferedInputStream bufferedStream = new BufferedInputStream(this.stream);
-
-                int c;
-                while ((c = bufferedStream.read()) >= 0)
-                    this.builder.append((char) c);
-
-                this.stream.close();
-            }
-            catch (IOException e)
-            {
-                log.error("Failure consuming stream", e);
-            }
+            return new String(consumer.get(), StandardCharsets.UTF_8);
         }
-
-        /**
-         * @return get the output of the stream so far
-         */
-        public String getConsumed()
+        catch (InterruptedException e)
+        {
+            consumer.cancel(true);
+            throw new IOException("Interrupted while consuming child process output", e);
+        }
+        catch (ExecutionException e)
         {
-            return this.builder.toString();
+            throw new IOException("Failure consuming child process output", e.getCause());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,167 @@
+package org.garrit.executor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Exchange messages with the negotiator over a shared, pooled HTTP client. Message
+ * bodies above a size threshold may be compressed. If the negotiator refuses a
+ * compressed body, the message is resent uncompressed and compression is
+ * switched off for the rest of the client's life.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Slf4j
+public class NegotiatorClient implements Closeable
+{
+    /**
+     * Content encodings which may be applied to outgoing messages.
+     */
+    public static enum Compression
+    {
+        NONE,
+        GZIP
+    }
+
+    private final URI negotiator;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final CloseableHttpClient client;
+    private final int compressionThreshold;
+    private volatile Compression compression;
+
+    /**
+     * @param negotiator the negotiator's base URI
+     * @param compression the encoding to apply to large messages
+     * @param compressionThreshold the size in bytes from which messages are
+     *            compressed
+     * @param connections the maximum number of concurrent connections
+     */
+    public NegotiatorClient(URI negotiator, Compression compression, int compressionThreshold, int connections)
+    {
+        this.negotiator = negotiator;
+        this.compression = compression;
+        this.compressionThreshold = compressionThreshold;
+        this.client = HttpClients.custom()
+                .setMaxConnTotal(connections)
+                .setMaxConnPerRoute(connections)
+                .build();
+    }
+
+    /**
+     * POST a message to the negotiator as JSON.
+     *
+     * @param path the path, relative to the negotiator's base URI
+     * @param message the message
+     * @throws IOException if the message cannot be encoded or sent
+     */
+    public void post(String path, Object message) throws IOException
+    {
+        byte[] body = this.mapper.writeValueAsBytes(message);
+
+        if (this.compression == Compression.GZIP && body.length >= this.compressionThreshold)
+        {
+            int status = this.send(path, gzip(body), "gzip");
+            if (status != HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE)
+                return;
+
+            log.warn("Negotiator refused a gzip-encoded message; disabling compression");
+            this.compression = Compression.NONE;
+        }
+
+        this.send(path, body, null);
+    }
+
+    /**
+     * GET a JSON message from the negotiator, waiting up to a given time for
+     * a response. This suits long polls, where the negotiator holds the
+     * request open until it has something to say.
+     *
+     * @param path the path, relative to the negotiator's base URI
+     * @param type the type of the message
+     * @param timeout the time in seconds to wait for the response
+     * @return the message, or null if the negotiator had no content
+     * @throws IOException if the request fails or the message cannot be
+     *             decoded
+     */
+    public <T> T get(String path, Class<T> type, int timeout) throws IOException
+    {
+        HttpGet get = new HttpGet(this.negotiator.resolve(path));
+        get.setHeader("Accept", "application/json");
+        get.setConfig(RequestConfig.custom()
+                .setSocketTimeout((int) TimeUnit.SECONDS.toMillis(timeout))
+                .build());
+
+        try (CloseableHttpResponse response = this.client.execute(get))
+        {
+            int status = response.getStatusLine().getStatusCode();
+            if (status == HttpStatus.SC_NO_CONTENT || response.getEntity() == null)
+            {
+                EntityUtils.consume(response.getEntity());
+                return null;
+            }
+
+            byte[] body = EntityUtils.toByteArray(response.getEntity());
+            if (status != HttpStatus.SC_OK)
+                throw new IOException(String.format("Negotiator responded to %s with status %d", path, status));
+
+            return this.mapper.readValue(body, type);
+        }
+    }
+
+    private int send(String path, byte[] body, String encoding) throws IOException
+    {
+        HttpPost post = new HttpPost(this.negotiator.resolve(path));
+        post.setHeader("Content-Type", "application/json");
+        if (encoding != null)
+            post.setHeader("Content-Encoding", encoding);
+        post.setEntity(new ByteArrayEntity(body));
+
+        try (CloseableHttpResponse response = this.client.execute(post))
+        {
+            /* Release the connection back to the pool. */
+            EntityUtils.consume(response.getEntity());
+
+            int status = response.getStatusLine().getStatusCode();
+            if (status >= HttpStatus.SC_BAD_REQUEST && status != HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE)
+                log.warn("Negotiator responded to {} with status {}", path, status);
+
+            return status;
+        }
+    }
+
+    static byte[] gzip(byte[] body) throws IOException
+    {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream stream = new GZIPOutputStream(compressed))
+        {
+            stream.write(body);
+        }
+
+        return compressed.toByteArray();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.client.close();
+    }
+}
@@ -0,0 +1,39 @@
+package org.garrit.executor;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Serve full case outputs from the {@link OutputStore output store} via
+ * HTTP.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Path("/output")
+@Produces(MediaType.APPLICATION_OCTET_STREAM)
+public class OutputResource
+{
+    private final OutputStore outputs;
+
+    public OutputResource(OutputStore outputs)
+    {
+        this.outputs = outputs;
+    }
+
+    @GET
+    @Path("/{submission}/{index}")
+    public Response getOutput(@PathParam("submission") int submission, @PathParam("index") int index)
+    {
+        byte[] output = this.outputs.get(submission, index);
+        if (output == null)
+            return Response.status(Status.NOT_FOUND).build();
+
+        return Response.ok(output).build();
+    }
+}
@@ -0,0 +1,125 @@
+package org.garrit.executor;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A bounded store of full case outputs, kept so that the negotiator can
+ * retrieve them on demand instead of receiving them with every
+ * {@link org.garrit.common.messages.Execution execution}. Outputs are evicted
+ * once they outlive their time to live, or oldest first once the store's total
+ * size exceeds its capacity.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class OutputStore
+{
+    private final long capacity;
+    private final long ttl;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry> outputs = new LinkedHashMap<>();
+    private long size = 0;
+
+    /**
+     * @param capacity the maximum total size of stored outputs in bytes
+     * @param ttl how long outputs are kept, in seconds
+     */
+    public OutputStore(long capacity, long ttl)
+    {
+        this(capacity, ttl, System::currentTimeMillis);
+    }
+
+    /**
+     * @param capacity the maximum total size of stored outputs in bytes
+     * @param ttl how long outputs are kept, in seconds
+     * @param clock the source of the current time in milliseconds
+     */
+    public OutputStore(long capacity, long ttl, LongSupplier clock)
+    {
+        this.capacity = capacity;
+        this.ttl = TimeUnit.SECONDS.toMillis(ttl);
+        this.clock = clock;
+    }
+
+    /**
+     * Store the output of a case. Outputs larger than the store's capacity are
+     * not stored.
+     *
+     * @param submission the submission ID
+     * @param index the index of the case within the problem
+     * @param output the case's output
+     */
+    public synchronized void put(int submission, int index, byte[] output)
+    {
+        if (output.length > this.capacity)
+            return;
+
+        Entry replaced = this.outputs.remove(key(submission, index));
+        if (replaced != null)
+            this.size -= replaced.output.length;
+
+        this.outputs.put(key(submission, index), new Entry(output, this.clock.getAsLong() + this.ttl));
+        this.size += output.length;
+
+        this.evict();
+    }
+
+    /**
+     * @param submission the submission ID
+     * @param index the index of the case within the problem
+     * @return the case's output, or null if it is not stored
+     */
+    public synchronized byte[] get(int submission, int index)
+    {
+        this.evict();
+
+        Entry entry = this.outputs.get(key(submission, index));
+        return (entry != null) ? entry.output : null;
+    }
+
+    /**
+     * @return the total size of stored outputs in bytes
+     */
+    public synchronized long size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Drop expired outputs, then the oldest outputs until the store fits its
+     * capacity. Outputs are held in insertion order, so expired outputs are
+     * always at the front.
+     */
+    private void evict()
+    {
+        long now = this.clock.getAsLong();
+
+        Iterator<Entry> entries = this.outputs.values().iterator();
+        while (entries.hasNext())
+        {
+            Entry entry = entries.next();
+            if (entry.expires > now && this.size <= this.capacity)
+                break;
+
+            entries.remove();
+            this.size -= entry.output.length;
+        }
+    }
+
+    private static String key(int submission, int index)
+    {
+        return submission + "/" + index;
+    }
+
+    @RequiredArgsConstructor
+    private static class Entry
+    {
+        private final byte[] output;
+        private final long expires;
+    }
+}
@@ -0,0 +1,75 @@
+package org.garrit.executor;
+
+import io.dropwizard.cli.Command;
+import io.dropwizard.setup.Bootstrap;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+import org.garrit.common.Problem;
+import org.garrit.common.Problems;
+
+/**
+ * Compile problem directories into {@link PackedProblem packs}, which the
+ * executor maps into memory in place of loading each case's files. Problems
+ * are packed in place, and can be repacked at any time; a problem whose files
+ * change after packing is loaded from its files until it is repacked.
+ *
+ * <pre>
+ * java -jar executor.jar pack /path/to/problems [problem ...]
+ * </pre>
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Slf4j
+public class PackProblemsCommand extends Command
+{
+    public PackProblemsCommand()
+    {
+        super("pack", "Compile problem definitions into memory-mappable packs");
+    }
+
+    @Override
+    public void configure(Subparser subparser)
+    {
+        subparser.addArgument("problems")
+                .help("the directory containing problem definitions");
+        subparser.addArgument("names")
+                .nargs("*")
+                .help("the problems to pack; every problem if none are given");
+    }
+
+    @Override
+    public void run(Bootstrap<?> bootstrap, Namespace namespace) throws Exception
+    {
+        Path problems = Paths.get(namespace.getString("problems"));
+
+        List<String> names = namespace.getList("names");
+        if (names == null || names.isEmpty())
+        {
+            names = new ArrayList<>();
+            Problems.availableProblems(problems).forEach(names::add);
+        }
+
+        for (String name : names)
+        {
+            /* Take the version before loading, so that a change made while
+             * packing leaves the pack stale rather than silently wrong. */
+            String sourceVersion = ProblemVersions.sourceVersion(problems, name);
+            Problem problem = Problems.problemByName(problems, name);
+
+            Path pack = PackedProblem.location(problems, name);
+            PackedProblem.write(PackedProblem.casesOf(problem), sourceVersion, pack);
+
+            log.info("Packed {} into {}", name, pack);
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package org.garrit.executor;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.Getter;
+
+import org.garrit.common.Problem;
+import org.garrit.common.ProblemCase;
+
+/**
+ * A problem compiled into a single indexed file, which the executor maps into
+ * memory rather than reading each case's files onto the heap. Case inputs are
+ * served as read-only slices of the mapping, so a problem with hundreds of
+ * cases costs one mapping and an index, and inputs are only paged in as they
+ * are used.
+ * <p>
+ * A pack lives in its problem's directory as {@value #FILENAME}, alongside the
+ * files it was built from, and records the {@link ProblemVersions#sourceVersion
+ * version} of those files. A pack whose sources have since changed is stale
+ * and is ignored. All values are big-endian:
+ * <ul>
+ * <li>the magic bytes <code>GARRITPK</code> and a format version (int)</li>
+ * <li>the source version: a length (int) and that many UTF-8 bytes</li>
+ * <li>the number of cases (int), then for each case its name as a length and
+ * UTF-8 bytes, its time limit (int), and the offset and length of its input
+ * (long each; an offset of -1 for a case without input)</li>
+ * <li>the inputs, back to back</li>
+ * </ul>
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class PackedProblem
+{
+    public static final String FILENAME = "problem.pack";
+
+    private static final byte[] MAGIC = "GARRITPK".getBytes(StandardCharsets.US_ASCII);
+    private static final int FORMAT_VERSION = 1;
+    private static final long NO_INPUT = -1;
+
+    /**
+     * The version of the files the pack was built from.
+     */
+    @Getter
+    private final String sourceVersion;
+    @Getter
+    private final List<ProblemCase> cases;
+
+    private PackedProblem(String sourceVersion, List<ProblemCase> cases)
+    {
+        this.sourceVersion = sourceVersion;
+        this.cases = Collections.unmodifiableList(cases);
+    }
+
+    /**
+     * @param problems the directory containing problem definitions
+     * @param name the name of a problem
+     * @return where the problem's pack is kept
+     */
+    public static Path location(Path problems, String name)
+    {
+        return problems.resolve(name).resolve(FILENAME);
+    }
+
+    /**
+     * Map a pack into memory. The mapping outlives the file being replaced,
+     * as {@link #write(List, String, Path)} does, but not its being
+     * truncated.
+     *
+     * @param file the pack
+     * @return the pack
+     * @throws IOException if the pack cannot be mapped or is malformed
+     */
+    public static PackedProblem open(Path file) throws IOException
+    {
+        MappedByteBuffer mapping;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException(String.format("Problem pack %s is too large to map", file));
+
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try
+        {
+            return parse(mapping);
+        }
+        catch (BufferUnderflowException | IllegalArgumentException e)
+        {
+            throw new IOException(String.format("Malformed problem pack %s", file), e);
+        }
+    }
+
+    private static PackedProblem parse(ByteBuffer mapping) throws IOException
+    {
+        byte[] magic = new byte[MAGIC.length];
+        mapping.get(magic);
+        if (!Arrays.equals(magic, MAGIC))
+            throw new IOException("Not a problem pack");
+
+        int format = mapping.getInt();
+        if (format != FORMAT_VERSION)
+            throw new IOException(String.format("Unsupported problem pack format %d", format));
+
+        String sourceVersion = readString(mapping);
+
+        int count = mapping.getInt();
+        if (count < 0)
+            throw new IOException("Negative case count");
+
+        ArrayList<ProblemCase> cases = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++)
+        {
+            String name = readString(mapping);
+            int timeLimit = mapping.getInt();
+            long offset = mapping.getLong();
+            long length = mapping.getLong();
+
+            ByteBuffer input = null;
+            if (offset != NO_INPUT)
+            {
+                if (offset < 0 || length < 0 || offset + length > mapping.capacity())
+                    throw new IOException(String.format("Input of case \"%s\" lies outside the pack", name));
+
+                input = mapping.duplicate();
+                /* Through Buffer, so that a build on a newer JDK still runs
+                 * on Java 8. */
+                ((Buffer) input).limit((int) (offset + length));
+                ((Buffer) input).position((int) offset);
+                input = input.slice().asReadOnlyBuffer();
+            }
+
+            cases.add(new PackedCase(name, timeLimit, input));
+        }
+
+        return new PackedProblem(sourceVersion, cases);
+    }
+
+    private static String readString(ByteBuffer buffer)
+    {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining())
+            throw new IllegalArgumentException("String length out of range");
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param problem a problem loaded from its files
+     * @return the problem's cases
+     */
+    public static List<ProblemCase> casesOf(Problem problem)
+    {
+        ArrayList<ProblemCase> cases = new ArrayList<>();
+        for (ProblemCase problemCase : problem.getCases())
+            cases.add(problemCase);
+
+        return Collections.unmodifiableList(cases);
+    }
+
+    /**
+     * Pack a problem's cases. The pack is written alongside its destination
+     * and moved into place, so existing mappings of an older pack remain
+     * intact.
+     *
+     * @param cases the problem's cases
+     * @param sourceVersion the version of the files the problem was loaded
+     *            from
+     * @param file the destination
+     * @throws IOException if the pack cannot be written
+     */
+    public static void write(List<ProblemCase> cases, String sourceVersion, Path file) throws IOException
+    {
+        /* The index comes first, so work out its size before laying out the
+         * inputs after it. */
+        byte[] version = sourceVersion.getBytes(StandardCharsets.UTF_8);
+        ArrayList<byte[]> names = new ArrayList<>(cases.size());
+        long indexSize = MAGIC.length + 4 + 4 + version.length + 4;
+        for (ProblemCase problemCase : cases)
+        {
+            byte[] name = problemCase.getName().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            indexSize += 4 + name.length + 4 + 8 + 8;
+        }
+
+        ByteBuffer index = ByteBuffer.allocate((int) indexSize);
+        index.put(MAGIC);
+        index.putInt(FORMAT_VERSION);
+        index.putInt(version.length);
+        index.put(version);
+        index.putInt(cases.size());
+
+        long offset = indexSize;
+        for (int i = 0; i < cases.size(); i++)
+        {
+            ProblemCase problemCase = cases.get(i);
+            ByteBuffer input = inputOf(problemCase);
+
+            index.putInt(names.get(i).length);
+            index.put(names.get(i));
+            index.putInt(problemCase.getTimeLimit());
+            index.putLong((input != null) ? offset : NO_INPUT);
+            index.putLong((input != null) ? input.remaining() : 0);
+
+            if (input != null)
+                offset += input.remaining();
+        }
+        ((Buffer) index).flip();
+
+        Files.createDirectories(file.getParent());
+        Path scratch = Files.createTempFile(file.getParent(), ".incoming-", ".pack");
+        try
+        {
+            try (FileChannel channel = FileChannel.open(scratch, StandardOpenOption.WRITE))
+            {
+                writeFully(channel, index);
+                for (ProblemCase problemCase : cases)
+                {
+                    ByteBuffer input = inputOf(problemCase);
+                    if (input != null)
+                        writeFully(channel, input);
+                }
+
+                channel.force(true);
+            }
+
+            scratch.toFile().setReadable(true, false);
+            Files.move(scratch, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally
+        {
+            Files.deleteIfExists(scratch);
+        }
+    }
+
+    /**
+     * Get a case's input without copying it, whether or not it is packed.
+     *
+     * @param problemCase the case
+     * @return a buffer over the case's input, or null if it has none
+     */
+    public static ByteBuffer inputOf(ProblemCase problemCase)
+    {
+        if (problemCase instanceof PackedCase)
+            return ((PackedCase) problemCase).getInputBuffer();
+
+        byte[] input = problemCase.getInput();
+        return (input != null) ? ByteBuffer.wrap(input) : null;
+    }
+
+    /**
+     * Determine whether a case has input without copying it, whether or not
+     * it is packed.
+     *
+     * @param problemCase the case
+     * @return whether the case has input
+     */
+    public static boolean hasInput(ProblemCase problemCase)
+    {
+        if (problemCase instanceof PackedCase)
+            return ((PackedCase) problemCase).hasInput();
+
+        return problemCase.getInput() != null;
+    }
+
+    /**
+     * Write a buffer out in full.
+     *
+     * @param channel the destination
+     * @param buffer the data, which is consumed
+     * @throws IOException if the data cannot be written
+     */
+    static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * A case of a packed problem, whose input is a slice of the pack's
+     * mapping.
+     *
+     * @author Samuel Coleman <samuel@seenet.ca>
+     * @since 1.0.0
+     */
+    public static class PackedCase extends ProblemCase
+    {
+        private final ByteBuffer input;
+
+        public PackedCase(String name, int timeLimit, ByteBuffer input)
+        {
+            this.setName(name);
+            this.setTimeLimit(timeLimit);
+            this.input = input;
+        }
+
+        /**
+         * @return whether the case has input, which unlike checking
+         *         {@link #getInput()} copies nothing
+         */
+        public boolean hasInput()
+        {
+            return this.input != null;
+        }
+
+        /**
+         * @return a read-only view of the case's input within the mapping, or
+         *         null if the case has no input
+         */
+        public ByteBuffer getInputBuffer()
+        {
+            return (this.input != null) ? this.input.duplicate() : null;
+        }
+
+        /**
+         * The input is copied out of the mapping afresh on every call, and
+         * never retained; prefer {@link #getInputBuffer()} where possible.
+         */
+        @Override
+        public byte[] getInput()
+        {
+            ByteBuffer buffer = this.getInputBuffer();
+            if (buffer == null)
+                return null;
+
+            byte[] input = new byte[buffer.remaining()];
+            buffer.get(input);
+            return input;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.garrit.executor;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * One stage of the {@link ExecutionManager execution manager}'s pipeline: a
+ * pool of threads taking work from a queue of their own. A stage keeps count
+ * of how many of its threads are busy, so that its occupancy can be reported
+ * alongside the executor's status.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class PipelineStage<T>
+{
+    /**
+     * The number of threads working the stage.
+     */
+    @Getter
+    private final int size;
+    /**
+     * Work waiting for the stage.
+     */
+    @Getter
+    @JsonIgnore
+    private final BlockingQueue<T> queue;
+    private final AtomicInteger busy = new AtomicInteger();
+
+    /**
+     * @param size the number of threads working the stage
+     * @param queue work waiting for the stage
+     */
+    public PipelineStage(int size, BlockingQueue<T> queue)
+    {
+        this.size = size;
+        this.queue = queue;
+    }
+
+    /**
+     * Wait for the next piece of work, and count the calling thread as busy
+     * until it calls {@link #done()}.
+     *
+     * @return the work
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public T take() throws InterruptedException
+    {
+        T work = this.queue.take();
+        this.busy.incrementAndGet();
+        return work;
+    }
+
+    /**
+     * Record that the calling thread has finished the work it took.
+     */
+    public void done()
+    {
+        this.busy.decrementAndGet();
+    }
+
+    /**
+     * @return the number of threads currently working
+     */
+    public int getBusy()
+    {
+        return this.busy.get();
+    }
+
+    /**
+     * @return the number of pieces of work waiting for the stage
+     */
+    public int getQueued()
+    {
+        return this.queue.size();
+    }
+
+    /**
+     * @return the fraction of the stage's threads currently working
+     */
+    public double getOccupancy()
+    {
+        return (this.size > 0) ? (double) this.busy.get() / this.size : 0;
+    }
+}
@@ -0,0 +1,164 @@
+package org.garrit.executor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.garrit.common.ProblemCase;
+import org.garrit.common.Problems;
+
+/**
+ * A bounded, least-recently-used cache of the cases of loaded problem
+ * definitions. A cached problem is reloaded if its {@link ProblemVersions
+ * version} on disk has changed since it was loaded. Problems with an
+ * up-to-date {@link PackedProblem pack} are mapped from it rather than loaded
+ * from their individual files.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Slf4j
+public class ProblemCache
+{
+    private final Path problems;
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * @param problems the directory containing problem definitions
+     * @param capacity the maximum number of problems to retain
+     */
+    public ProblemCache(Path problems, int capacity)
+    {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Problem cache capacity must be positive");
+
+        this.problems = problems;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+            {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Get a problem's cases, loading it if it is not cached or has changed.
+     *
+     * @param name the name of the problem
+     * @return the problem's cases
+     * @throws IOException if the problem cannot be loaded
+     */
+    public List<ProblemCase> get(String name) throws IOException
+    {
+        String version;
+        try
+        {
+            version = ProblemVersions.version(this.problems, name);
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to determine version of problem {}; loading it uncached", name);
+            version = null;
+        }
+
+        return this.get(name, version);
+    }
+
+    /**
+     * Get a problem's cases, given its current {@link ProblemVersions
+     * version}, loading it if it is not cached or has changed.
+     *
+     * @param name the name of the problem
+     * @param version the problem's version, or null if it is unknown, in
+     *            which case the problem is loaded uncached
+     * @return the problem's cases
+     * @throws IOException if the problem cannot be loaded
+     */
+    public List<ProblemCase> get(String name, String version) throws IOException
+    {
+        if (version == null)
+            return PackedProblem.casesOf(Problems.problemByName(this.problems, name));
+
+        synchronized (this)
+        {
+            Entry entry = this.entries.get(name);
+            if (entry != null && entry.version.equals(version))
+                return entry.cases;
+        }
+
+        /* Load outside the lock; concurrent misses for the same problem may
+         * load it twice, but won't hold up lookups of other problems. */
+        List<ProblemCase> cases = this.load(name);
+
+        synchronized (this)
+        {
+            this.entries.put(name, new Entry(version, cases));
+        }
+
+        return cases;
+    }
+
+    /**
+     * Load a problem's cases from its pack if it has an up-to-date one, or
+     * from its individual files otherwise.
+     */
+    private List<ProblemCase> load(String name) throws IOException
+    {
+        Path pack = PackedProblem.location(this.problems, name);
+        if (Files.isRegularFile(pack))
+        {
+            try
+            {
+                PackedProblem packed = PackedProblem.open(pack);
+                if (packed.getSourceVersion().equals(ProblemVersions.sourceVersion(this.problems, name)))
+                    return packed.getCases();
+
+                log.warn("Pack of problem {} is out of date; loading its files instead", name);
+            }
+            catch (IOException e)
+            {
+                log.warn("Failed to map pack of problem " + name + "; loading its files instead", e);
+            }
+        }
+
+        return PackedProblem.casesOf(Problems.problemByName(this.problems, name));
+    }
+
+    /**
+     * @param name the name of a problem
+     * @return whether or not the problem is currently cached
+     */
+    public synchronized boolean contains(String name)
+    {
+        return this.entries.containsKey(name);
+    }
+
+    /**
+     * @return the names of the cached problems, most recently used first
+     */
+    public synchronized List<String> names()
+    {
+        ArrayList<String> names = new ArrayList<>(this.entries.keySet());
+        Collections.reverse(names);
+        return names;
+    }
+
+    @RequiredArgsConstructor
+    private static class Entry
+    {
+        private final String version;
+        private final List<ProblemCase> cases;
+    }
+}
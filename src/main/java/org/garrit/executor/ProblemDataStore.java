@@ -0,0 +1,226 @@
+package org.garrit.executor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.garrit.common.ProblemCase;
+
+/**
+ * Lay out problems' case inputs as files on the host, once per problem
+ * version, so that they can be bind-mounted read-only into every environment
+ * executing against the problem. Concurrent executions then share the page
+ * cache's copy of each input rather than each receiving its own.
+ * <p>
+ * Each environment using a problem's data holds on to it until released. Once
+ * a problem has been laid out afresh, the data of its earlier versions is
+ * deleted as soon as no environment holds it.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Slf4j
+public class ProblemDataStore
+{
+    private static final String INPUT_FORMAT = "case-%04d.in";
+    private static final int VERSION_PREFIX = 16;
+
+    private final Path root;
+    /**
+     * The number of environments holding each laid-out directory. Guarded by
+     * this store, as are the directories themselves.
+     */
+    private final HashMap<Path, Integer> holds = new HashMap<>();
+    /**
+     * The most recently laid-out directory of each problem, keyed by the
+     * problem's directory name prefix.
+     */
+    private final HashMap<String, Path> latest = new HashMap<>();
+
+    /**
+     * @param root the directory under which problem data is laid out
+     */
+    public ProblemDataStore(Path root)
+    {
+        this.root = root;
+    }
+
+    /**
+     * @param index the index of a case within its problem
+     * @return the name of the file holding the case's input
+     */
+    public static String inputName(int index)
+    {
+        return String.format(INPUT_FORMAT, index);
+    }
+
+    /**
+     * Get the directory holding a problem's case inputs, writing them out if
+     * this version of the problem has not been seen before, and hold it until
+     * {@link #release(Path) released}. Cases without input have no file.
+     *
+     * @param name the name of the problem
+     * @param version the {@link ProblemVersions version} of the problem
+     * @param cases the problem's cases
+     * @return the directory holding the problem's case inputs
+     * @throws IOException if the inputs cannot be written
+     */
+    public Path materialize(String name, String version, List<ProblemCase> cases) throws IOException
+    {
+        String problem = name.replaceAll("[^A-Za-z0-9_.-]", "_");
+        Path directory = this.root.resolve(problem + "-" + version.substring(0, VERSION_PREFIX));
+
+        synchronized (this)
+        {
+            if (Files.isDirectory(directory))
+                return this.hold(problem, directory);
+        }
+
+        /* Write into a scratch directory and move it into place, so that
+         * nothing ever sees a partially written problem. */
+        Files.createDirectories(this.root);
+        Path scratch = Files.createTempDirectory(this.root, ".incoming-");
+
+        int index = 0;
+        for (ProblemCase problemCase : cases)
+        {
+            /* Packed inputs go straight from the mapping to the file, without
+             * a copy on the heap. */
+            ByteBuffer input = PackedProblem.inputOf(problemCase);
+            if (input != null)
+            {
+                try (FileChannel channel = FileChannel.open(scratch.resolve(inputName(index)),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))
+                {
+                    PackedProblem.writeFully(channel, input);
+                }
+            }
+            index++;
+        }
+
+        synchronized (this)
+        {
+            try
+            {
+                Files.move(scratch, directory, StandardCopyOption.ATOMIC_MOVE);
+                log.info("Laid out data for problem {} at {}", name, directory);
+            }
+            catch (IOException e)
+            {
+                /* Another worker may have beaten us to it, in which case the
+                 * move fails; if the directory is now there, all is well. */
+                deleteRecursively(scratch);
+                if (!Files.isDirectory(directory))
+                    throw e;
+            }
+
+            return this.hold(problem, directory);
+        }
+    }
+
+    /**
+     * Let go of a directory returned by
+     * {@link #materialize(String, String, List)}, once the environment it was
+     * exposed to is gone.
+     *
+     * @param directory the directory
+     */
+    public synchronized void release(Path directory)
+    {
+        Integer count = this.holds.get(directory);
+        if (count == null)
+            return;
+
+        if (count > 1)
+        {
+            this.holds.put(directory, count - 1);
+            return;
+        }
+
+        this.holds.remove(directory);
+
+        String name = directory.getFileName().toString();
+        this.prune(name.substring(0, name.length() - VERSION_PREFIX - 1));
+    }
+
+    /**
+     * @return the number of environments holding a directory
+     */
+    synchronized int holders(Path directory)
+    {
+        return this.holds.getOrDefault(directory, 0);
+    }
+
+    private Path hold(String problem, Path directory)
+    {
+        this.holds.merge(directory, 1, Integer::sum);
+
+        if (!directory.equals(this.latest.put(problem, directory)))
+            this.prune(problem);
+
+        return directory;
+    }
+
+    /**
+     * Delete every version of a problem's data, save the latest, which no
+     * environment holds. This includes any left behind by earlier runs.
+     *
+     * @param problem the problem's directory name prefix
+     */
+    private void prune(String problem)
+    {
+        Pattern versions = Pattern.compile(Pattern.quote(problem) + "-[0-9a-f]{" + VERSION_PREFIX + "}");
+
+        List<Path> stale = new ArrayList<>();
+        try (Stream<Path> directories = Files.list(this.root))
+        {
+            directories.filter(directory -> versions.matcher(directory.getFileName().toString()).matches())
+                    .filter(directory -> !directory.equals(this.latest.get(problem)))
+                    .filter(directory -> !this.holds.containsKey(directory))
+                    .forEach(stale::add);
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to list problem data under " + this.root, e);
+            return;
+        }
+
+        for (Path directory : stale)
+        {
+            try
+            {
+                deleteRecursively(directory);
+                log.info("Deleted superseded problem data {}", directory);
+            }
+            catch (IOException e)
+            {
+                log.warn("Failed to delete superseded problem data " + directory, e);
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException
+    {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(directory))
+        {
+            paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+
+        for (Path path : paths)
+            Files.deleteIfExists(path);
+    }
+}
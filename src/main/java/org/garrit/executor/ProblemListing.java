@@ -0,0 +1,137 @@
+package org.garrit.executor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.garrit.common.Problems;
+
+/**
+ * The names of the problems available in the problems directory. The listing
+ * is cached and only rescanned once the directory has changed, as reported by
+ * a filesystem watch. Until the watch is started, or if it cannot be, every
+ * request rescans the directory.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Slf4j
+public class ProblemListing implements Closeable
+{
+    private final Path problems;
+    private volatile List<String> listing = null;
+    /**
+     * Whether the directory may have changed since the listing was taken.
+     */
+    private volatile boolean stale = true;
+    private volatile boolean watching = false;
+    private WatchService watchService;
+    private Thread watcher;
+
+    /**
+     * @param problems the problems directory
+     */
+    public ProblemListing(Path problems)
+    {
+        this.problems = problems;
+    }
+
+    /**
+     * @return the names of the available problems
+     * @throws IOException if the directory cannot be scanned
+     */
+    public List<String> get() throws IOException
+    {
+        List<String> listing = this.listing;
+        if (this.watching && !this.stale && listing != null)
+            return listing;
+
+        /* Clear the flag first, so that a change during the scan marks the
+         * new listing stale rather than being lost. */
+        this.stale = false;
+
+        ArrayList<String> names = new ArrayList<>();
+        Problems.availableProblems(this.problems).forEach(names::add);
+
+        listing = Collections.unmodifiableList(names);
+        this.listing = listing;
+        return listing;
+    }
+
+    /**
+     * Start watching the problems directory for changes.
+     */
+    public synchronized void watch()
+    {
+        if (this.watcher != null)
+            return;
+
+        try
+        {
+            this.watchService = FileSystems.getDefault().newWatchService();
+            this.problems.register(this.watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to watch problems directory; rescanning it on every request", e);
+            return;
+        }
+
+        this.stale = true;
+        this.watching = true;
+        this.watcher = Threads.factory("Problem watcher").newThread(this::awaitChanges);
+        this.watcher.start();
+    }
+
+    private void awaitChanges()
+    {
+        try
+        {
+            while (true)
+            {
+                WatchKey key = this.watchService.take();
+
+                /* Any event at all, including an overflow, means the listing
+                 * may be out of date. */
+                key.pollEvents();
+                this.stale = true;
+
+                if (!key.reset())
+                {
+                    log.warn("Problems directory is no longer watchable; rescanning it on every request");
+                    break;
+                }
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e)
+        {
+            /* We're being shut down. */
+        }
+
+        this.watching = false;
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (this.watcher == null)
+            return;
+
+        this.watcher.interrupt();
+        this.watchService.close();
+        this.watcher = null;
+    }
+}
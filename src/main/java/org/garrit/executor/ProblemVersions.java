@@ -0,0 +1,72 @@
+package org.garrit.executor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Identify the version of a problem definition on disk. The version changes
+ * whenever any file in the problem's directory is added, removed, resized or
+ * modified.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class ProblemVersions
+{
+    /**
+     * @param problems the directory containing problem definitions
+     * @param problem the name of the problem
+     * @return an opaque version string for the problem
+     * @throws IOException if the problem's files cannot be examined
+     */
+    public static String version(Path problems, String problem) throws IOException
+    {
+        return version(problems, problem, false);
+    }
+
+    /**
+     * Identify the version of the files from which a problem's
+     * {@link PackedProblem pack} is built, which is to say every file but the
+     * pack itself.
+     *
+     * @param problems the directory containing problem definitions
+     * @param problem the name of the problem
+     * @return an opaque version string for the problem's sources
+     * @throws IOException if the problem's files cannot be examined
+     */
+    public static String sourceVersion(Path problems, String problem) throws IOException
+    {
+        return version(problems, problem, true);
+    }
+
+    private static String version(Path problems, String problem, boolean sourcesOnly) throws IOException
+    {
+        Path root = problems.resolve(problem);
+        Path pack = PackedProblem.location(problems, problem);
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root))
+        {
+            files = walk.filter(Files::isRegularFile)
+                    .filter(file -> !sourcesOnly || !file.equals(pack))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        MessageDigest digest = Digests.sha256();
+        for (Path file : files)
+        {
+            digest.update(root.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+            digest.update(Digests.longBytes(Files.size(file)));
+            digest.update(Digests.longBytes(Files.getLastModifiedTime(file).toMillis()));
+        }
+
+        return Digests.hex(digest.digest());
+    }
+}
@@ -0,0 +1,22 @@
+package org.garrit.executor;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import org.garrit.common.messages.RegisteredSubmission;
+
+/**
+ * A submission waiting in the {@link ExecutionManager execution manager}'s
+ * queue, along with the bookkeeping which travels with it.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Getter
+@RequiredArgsConstructor
+public class QueuedSubmission
+{
+    private final RegisteredSubmission submission;
+    private final SubmissionTimeline timeline;
+    private final SubmissionOptions options;
+}
@@ -0,0 +1,115 @@
+package org.garrit.executor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+
+import org.garrit.common.messages.RegisteredSubmission;
+
+/**
+ * A group of submissions against the same problem being rejudged together.
+ * Byte-identical submissions in a batch are executed once, and their result is
+ * shared with every duplicate.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class RejudgeBatch
+{
+    @Getter
+    private final String id;
+    @Getter
+    private final String problem;
+    @Getter
+    private final int total;
+    /**
+     * The reasons for which submissions could not be accepted into the batch,
+     * keyed by submission ID.
+     */
+    private final Map<Integer, String> rejections;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    /**
+     * Duplicates of each submission which is actually executed, keyed by the
+     * executed submission's ID.
+     */
+    private final HashMap<Integer, List<RegisteredSubmission>> duplicates;
+
+    public RejudgeBatch(String id, String problem, int total, Map<Integer, String> rejections,
+            HashMap<Integer, List<RegisteredSubmission>> duplicates)
+    {
+        this.id = id;
+        this.problem = problem;
+        this.total = total;
+        this.rejections = Collections.unmodifiableMap(rejections);
+        this.duplicates = duplicates;
+    }
+
+    /**
+     * @return the number of submissions which could not be accepted into the
+     *         batch
+     */
+    public int getRejected()
+    {
+        return this.rejections.size();
+    }
+
+    /**
+     * @return the reasons for which submissions could not be accepted into the
+     *         batch, keyed by submission ID
+     */
+    public Map<Integer, String> getRejections()
+    {
+        return this.rejections;
+    }
+
+    /**
+     * @return the number of submissions for which results have been reported
+     */
+    public int getCompleted()
+    {
+        return this.completed.get();
+    }
+
+    /**
+     * @return the number of submissions for which errors have been reported
+     */
+    public int getFailed()
+    {
+        return this.failed.get();
+    }
+
+    /**
+     * @return whether every accepted submission in the batch has finished
+     */
+    public boolean isFinished()
+    {
+        return this.getCompleted() + this.getFailed() + this.getRejected() >= this.total;
+    }
+
+    /**
+     * Record the outcome of an executed submission.
+     *
+     * @param id the ID of the executed submission
+     * @param succeeded whether the submission produced results or an error
+     * @return the duplicates of the submission, which share its outcome
+     */
+    public List<RegisteredSubmission> finish(int id, boolean succeeded)
+    {
+        List<RegisteredSubmission> shared;
+        synchronized (this.duplicates)
+        {
+            shared = this.duplicates.remove(id);
+        }
+        shared = (shared != null) ? shared : Collections.emptyList();
+
+        (succeeded ? this.completed : this.failed).addAndGet(1 + shared.size());
+
+        return new ArrayList<>(shared);
+    }
+}
@@ -0,0 +1,67 @@
+package org.garrit.executor;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.garrit.common.messages.RegisteredSubmission;
+
+/**
+ * Expose bulk rejudging via HTTP.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Slf4j
+@Path("/rejudge")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class RejudgeResource
+{
+    private final ExecutionManager manager;
+
+    public RejudgeResource(ExecutionManager manager)
+    {
+        this.manager = manager;
+    }
+
+    @POST
+    @Path("/{problem}")
+    public Response rejudgeProblem(@PathParam("problem") String problem, List<RegisteredSubmission> submissions)
+    {
+        RejudgeBatch batch;
+        try
+        {
+            batch = this.manager.rejudge(problem, submissions);
+        }
+        catch (IOException e)
+        {
+            log.error("Failed to load problem for rejudge", e);
+            return Response.status(Status.NOT_FOUND).build();
+        }
+
+        return Response.status(Status.ACCEPTED).entity(batch).build();
+    }
+
+    @GET
+    @Path("/{batch}")
+    public Response getProgress(@PathParam("batch") String id)
+    {
+        RejudgeBatch batch = this.manager.getBatch(id);
+        if (batch == null)
+            return Response.status(Status.NOT_FOUND).build();
+
+        return Response.ok(batch).build();
+    }
+}
@@ -0,0 +1,161 @@
+package org.garrit.executor;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.RequiredArgsConstructor;
+
+import org.garrit.common.messages.RegisteredSubmission;
+import org.garrit.common.messages.SubmissionFile;
+
+/**
+ * A bounded, least-recently-used cache of execution results, keyed by
+ * everything which determines the outcome of an execution: the submission's
+ * files, language and entry point, and the version of the problem it is
+ * executed against.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class ResultCache
+{
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * @param capacity the maximum number of results to retain
+     */
+    public ResultCache(int capacity)
+    {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Result cache capacity must be positive");
+
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+            {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Compute the cache key for a submission.
+     *
+     * @param submission the submission
+     * @param problemVersion the version of the submission's problem
+     * @return the cache key
+     */
+    public static String key(RegisteredSubmission submission, String problemVersion)
+    {
+        MessageDigest digest = Digests.sha256();
+
+        update(digest, submission.getLanguage().toLowerCase());
+        update(digest, submission.getEntryPoint());
+        update(digest, submission.getProblem());
+        update(digest, problemVersion);
+
+        updateFiles(digest, submission.getFiles());
+
+        return Digests.hex(digest.digest());
+    }
+
+    /**
+     * Feed a length-prefixed string to a digest, so that adjacent fields
+     * cannot run into each other.
+     */
+    static void update(MessageDigest digest, String value)
+    {
+        byte[] bytes = (value != null) ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        digest.update(Digests.longBytes(bytes.length));
+        digest.update(bytes);
+    }
+
+    /**
+     * Feed a submission's files to a digest, in order of filename so that
+     * the order in which they were submitted doesn't matter.
+     */
+    static void updateFiles(MessageDigest digest, List<SubmissionFile> files)
+    {
+        ArrayList<SubmissionFile> sorted = new ArrayList<>(files);
+        sorted.sort(Comparator.comparing(SubmissionFile::getFilename));
+
+        for (SubmissionFile file : sorted)
+        {
+            update(digest, file.getFilename());
+
+            /* Digest the contents first, so that spooled files, whose contents
+             * aren't on the heap, give the same key as inline ones. */
+            if (file instanceof SpooledSubmissionFile)
+            {
+                SpooledSubmissionFile spooled = (SpooledSubmissionFile) file;
+                digest.update(Digests.longBytes(spooled.getLength()));
+                digest.update(spooled.getDigest());
+            }
+            else
+            {
+                byte[] contents = (file.getContents() != null) ? file.getContents() : new byte[0];
+                digest.update(Digests.longBytes(contents.length));
+                digest.update(Digests.sha256().digest(contents));
+            }
+        }
+    }
+
+    /**
+     * @param key the cache key
+     * @return the cached results, or null if there are none
+     */
+    public synchronized List<IndexedExecutionCase> get(String key)
+    {
+        Entry entry = this.entries.get(key);
+        return (entry != null) ? entry.cases : null;
+    }
+
+    /**
+     * Cache the results of an execution.
+     *
+     * @param key the cache key
+     * @param problem the name of the problem executed against
+     * @param cases the results
+     */
+    public synchronized void put(String key, String problem, List<IndexedExecutionCase> cases)
+    {
+        this.entries.put(key, new Entry(problem, Collections.unmodifiableList(new ArrayList<>(cases))));
+    }
+
+    /**
+     * Discard all results for a problem.
+     *
+     * @param problem the name of the problem
+     * @return the number of results discarded
+     */
+    public synchronized int invalidate(String problem)
+    {
+        int before = this.entries.size();
+        this.entries.values().removeIf(entry -> entry.problem.equals(problem));
+        return before - this.entries.size();
+    }
+
+    /**
+     * @return the number of results currently cached
+     */
+    public synchronized int size()
+    {
+        return this.entries.size();
+    }
+
+    @RequiredArgsConstructor
+    private static class Entry
+    {
+        private final String problem;
+        private final List<IndexedExecutionCase> cases;
+    }
+}
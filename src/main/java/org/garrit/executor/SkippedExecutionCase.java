@@ -0,0 +1,26 @@
+package org.garrit.executor;
+
+import lombok.Getter;
+
+/**
+ * An {@link org.garrit.common.messages.ExecutionCase execution case} which was
+ * never run because an earlier case of a fail-fast submission failed. It
+ * carries no output or runtime.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class SkippedExecutionCase extends IndexedExecutionCase
+{
+    /**
+     * Always true; distinguishes skipped cases from cases which produced no
+     * output.
+     */
+    @Getter
+    private final boolean skipped = true;
+
+    public SkippedExecutionCase(String name, int caseIndex)
+    {
+        super(name, caseIndex);
+    }
+}
@@ -0,0 +1,51 @@
+package org.garrit.executor;
+
+import java.nio.file.Path;
+
+import lombok.Getter;
+
+import org.garrit.common.messages.SubmissionFile;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * A {@link SubmissionFile submission file} whose contents are kept in a file
+ * on disk rather than on the heap. Its contents are null; environments copy
+ * the file from its source when unpacking.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Getter
+public class SpooledSubmissionFile extends SubmissionFile
+{
+    /**
+     * The file holding the contents.
+     */
+    @JsonIgnore
+    private final Path source;
+    /**
+     * The directory holding every file of the submission, removed once the
+     * submission is finished with.
+     */
+    @JsonIgnore
+    private final Path spool;
+    /**
+     * The length of the contents in bytes.
+     */
+    private final long length;
+    /**
+     * The SHA-256 digest of the contents.
+     */
+    @JsonIgnore
+    private final byte[] digest;
+
+    public SpooledSubmissionFile(String filename, Path source, Path spool, long length, byte[] digest)
+    {
+        this.setFilename(filename);
+        this.source = source;
+        this.spool = spool;
+        this.length = length;
+        this.digest = digest;
+    }
+}
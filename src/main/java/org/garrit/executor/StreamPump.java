@@ -0,0 +1,245 @@
+package org.garrit.executor;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains and feeds child process streams on a pool of threads shared by every
+ * {@link ExecutionEnvironment environment}. Idle threads are kept around and
+ * reused, so starting a process no longer costs two thread creations. In
+ * {@link Threads.Mode#VIRTUAL virtual} mode the pool's threads are virtual.
+ * <p>
+ * The pool is bounded by the number of cases which can run at once, as set by
+ * {@link #configure(int)}. Streams beyond the bound wait for a thread rather
+ * than each getting one of their own.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class StreamPump
+{
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Queued by {@link #readLines(InputStream, BlockingQueue)} once a stream
+     * has ended.
+     */
+    public static final String END_OF_LINES = "";
+
+    /**
+     * The streams a running case can have open at once: the input, output and
+     * error of the command itself, and the output and error of the container
+     * agent which runs it.
+     */
+    static final int STREAMS_PER_CASE = 5;
+
+    /**
+     * Threads kept beyond those needed by running cases, for the odd command
+     * run on the host rather than for a case.
+     */
+    private static final int SPARE_THREADS = 2;
+
+    private static final long IDLE_SECONDS = 60;
+
+    private static int cases = Runtime.getRuntime().availableProcessors();
+
+    private static volatile ExecutorService pool = createPool();
+
+    /**
+     * Start draining a stream. The stream is closed once it has been read to
+     * its end.
+     *
+     * @param stream the stream to drain
+     * @return the eventual contents of the stream
+     */
+    public static Future<byte[]> consume(InputStream stream)
+    {
+        return consume(stream, Long.MAX_VALUE);
+    }
+
+    /**
+     * Start draining a stream, retaining no more than a limited amount of it.
+     * The stream is still read to its end, so that the process writing it is
+     * never blocked, and is closed once it has been.
+     *
+     * @param stream the stream to drain
+     * @param limit the number of bytes to retain
+     * @return the eventual contents of the stream, truncated as by
+     *         {@link #drain(InputStream, long)}
+     */
+    public static Future<byte[]> consume(InputStream stream, long limit)
+    {
+        return pool.submit(() -> drain(stream, limit));
+    }
+
+    /**
+     * Start writing input to a stream, closing the stream once all of it has
+     * been written. A process needn't read all of its input, so a write
+     * failing because the process has gone away is reported only through the
+     * future.
+     *
+     * @param stream the stream to feed
+     * @param input the input, which is consumed
+     * @return a future which completes once the stream is closed
+     */
+    public static Future<?> feed(OutputStream stream, ByteBuffer input)
+    {
+        return pool.submit(() ->
+        {
+            fill(stream, input);
+            return null;
+        });
+    }
+
+    /**
+     * Start reading a stream a line at a time, handing each line to a queue
+     * as it arrives. Once the stream ends, an empty string is queued in place
+     * of a line, so streams read this way should not contain empty lines.
+     *
+     * @param stream the stream to read
+     * @param lines the queue to receive the lines
+     * @return a future which completes once the stream ends
+     */
+    public static Future<?> readLines(InputStream stream, BlockingQueue<String> lines)
+    {
+        return pool.submit(() ->
+        {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8)))
+            {
+                String line;
+                while ((line = reader.readLine()) != null)
+                    if (!line.isEmpty())
+                        lines.add(line);
+            }
+            finally
+            {
+                lines.add(END_OF_LINES);
+            }
+
+            return null;
+        });
+    }
+
+    /**
+     * Size the pool for a number of cases running at once. Streams already
+     * being drained are unaffected.
+     *
+     * @param concurrentCases the number of cases which can run at once
+     */
+    public static synchronized void configure(int concurrentCases)
+    {
+        cases = Math.max(1, concurrentCases);
+        reset();
+    }
+
+    /**
+     * Replace the pool with one using the current {@link Threads thread mode}.
+     * Streams already being drained are unaffected.
+     */
+    static synchronized void reset()
+    {
+        ExecutorService previous = pool;
+        pool = createPool();
+        previous.shutdown();
+    }
+
+    /**
+     * @return the number of threads the pool is bounded to
+     */
+    static synchronized int getThreads()
+    {
+        return cases * STREAMS_PER_CASE + SPARE_THREADS;
+    }
+
+    private static synchronized ExecutorService createPool()
+    {
+        int threads = getThreads();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, IDLE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), Threads.factory("Stream pump"));
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    /**
+     * Write input to a stream, a buffer at a time so that input which isn't
+     * backed by an array (such as a slice of a mapped pack) needn't be copied
+     * whole.
+     *
+     * @param stream the stream, which is closed once written
+     * @param input the input, which is consumed
+     * @throws IOException if the stream could not be written
+     */
+    static void fill(OutputStream stream, ByteBuffer input) throws IOException
+    {
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try (OutputStream sink = stream)
+        {
+            while (input.hasRemaining())
+            {
+                int length = Math.min(buffer.length, input.remaining());
+                input.get(buffer, 0, length);
+                sink.write(buffer, 0, length);
+            }
+        }
+    }
+
+    /**
+     * Read a stream to its end, retaining its first <code>limit</code> bytes.
+     * Beyond the limit, only the stream's last few kilobytes are retained and
+     * appended, so that a trailing line (such as the runtime reported by
+     * <code>cputime</code>) survives truncation.
+     *
+     * @param stream the stream, which is closed once read
+     * @param limit the number of bytes to retain from the start of the stream
+     * @return the retained contents
+     * @throws IOException if the stream could not be read
+     */
+    static byte[] drain(InputStream stream, long limit) throws IOException
+    {
+        ByteArrayOutputStream contents = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] tail = new byte[BUFFER_SIZE];
+        int tailLength = 0;
+        boolean truncated = false;
+
+        try (InputStream source = stream)
+        {
+            int read;
+            while ((read = source.read(buffer)) >= 0)
+            {
+                int kept = (int) Math.max(0, Math.min(read, limit - contents.size()));
+                contents.write(buffer, 0, kept);
+                if (kept == read)
+                    continue;
+
+                /* Slide the tail along to make room for what's past the
+                 * limit; at most a buffer's worth is ever kept. */
+                truncated = true;
+                int extra = read - kept;
+                int retained = Math.min(tailLength, BUFFER_SIZE - extra);
+                System.arraycopy(tail, tailLength - retained, tail, 0, retained);
+                System.arraycopy(buffer, kept, tail, retained, extra);
+                tailLength = retained + extra;
+            }
+        }
+
+        if (truncated)
+            contents.write(tail, 0, tailLength);
+
+        return contents.toByteArray();
+    }
+}
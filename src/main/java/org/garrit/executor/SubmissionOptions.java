@@ -0,0 +1,29 @@
+package org.garrit.executor;
+
+import lombok.Data;
+
+/**
+ * Per-submission instructions given alongside a submission when it is
+ * enqueued.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Data
+public class SubmissionOptions
+{
+    /**
+     * Whether the submission is a deliberate rejudge, in which case any cached
+     * result is ignored and the submission is executed afresh.
+     */
+    private boolean rejudge = false;
+    /**
+     * The bulk rejudge the submission belongs to, if any.
+     */
+    private RejudgeBatch batch = null;
+    /**
+     * Whether to stop evaluating at the first failed case, or null to follow
+     * the problem's configured policy.
+     */
+    private Boolean failFast = null;
+}
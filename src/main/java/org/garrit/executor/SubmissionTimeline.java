@@ -0,0 +1,106 @@
+package org.garrit.executor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A timestamped record of the stages a single submission passes through on
+ * its way through the executor. Timelines are written to by the execution and
+ * reporting threads concurrently, so all mutation is synchronized.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class SubmissionTimeline
+{
+    /**
+     * The stages recorded in a timeline.
+     */
+    public static enum Stage
+    {
+        ENQUEUED,
+        DEQUEUED,
+        CACHE_HIT,
+        PROBLEM_LOADED,
+        ENVIRONMENT_READY,
+        COMPILED,
+        COMPILATION_REUSED,
+        CASE_STARTED,
+        CASE_FINISHED,
+        CASE_SKIPPED,
+        RECLAIMED,
+        FAILED,
+        REPORTED
+    }
+
+    @Getter
+    private final int id;
+    @Getter
+    private final long created;
+    private final long createdNanos;
+    private final ArrayList<Event> events = new ArrayList<>();
+
+    public SubmissionTimeline(int id)
+    {
+        this.id = id;
+        this.created = System.currentTimeMillis();
+        this.createdNanos = System.nanoTime();
+    }
+
+    /**
+     * Record that the submission has reached a stage.
+     *
+     * @param stage the stage
+     */
+    public void record(Stage stage)
+    {
+        this.record(stage, null);
+    }
+
+    /**
+     * Record that the submission has reached a stage.
+     *
+     * @param stage the stage
+     * @param detail additional detail about the stage, such as a case name
+     */
+    public synchronized void record(Stage stage, String detail)
+    {
+        long offset = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - this.createdNanos);
+        this.events.add(new Event(stage, detail, System.currentTimeMillis(), offset));
+    }
+
+    /**
+     * @return a snapshot of the events recorded so far, in order
+     */
+    public synchronized List<Event> getEvents()
+    {
+        return Collections.unmodifiableList(new ArrayList<>(this.events));
+    }
+
+    /**
+     * A single entry in a timeline.
+     *
+     * @author Samuel Coleman <samuel@seenet.ca>
+     * @since 1.0.0
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Event
+    {
+        private final Stage stage;
+        private final String detail;
+        /**
+         * Wall-clock time of the event in milliseconds since the epoch.
+         */
+        private final long timestamp;
+        /**
+         * Time since the timeline was created in microseconds.
+         */
+        private final long offset;
+    }
+}
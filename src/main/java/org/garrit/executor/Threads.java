@@ -0,0 +1,130 @@
+package org.garrit.executor;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Create the threads used by the executor. Threads are either conventional
+ * platform threads or, on JDKs which support them, virtual threads. Virtual
+ * threads are looked up reflectively so that the executor still builds and
+ * runs on Java 8.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Slf4j
+public class Threads
+{
+    /**
+     * The kinds of thread the executor can run on.
+     */
+    public static enum Mode
+    {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    private static volatile Mode mode = Mode.PLATFORM;
+
+    /**
+     * Select the kind of thread to create from now on. If virtual threads are
+     * requested but unavailable, platform threads are used instead.
+     *
+     * @param requested the requested mode
+     * @return the mode actually in effect
+     */
+    public static Mode setMode(Mode requested)
+    {
+        if (requested == Mode.VIRTUAL && !virtualThreadsAvailable())
+        {
+            log.warn("Virtual threads are unavailable on this JVM; falling back to platform threads");
+            requested = Mode.PLATFORM;
+        }
+
+        mode = requested;
+        StreamPump.reset();
+
+        return mode;
+    }
+
+    /**
+     * @return the kind of thread currently being created
+     */
+    public static Mode getMode()
+    {
+        return mode;
+    }
+
+    /**
+     * @return whether or not the running JVM supports virtual threads
+     */
+    public static boolean virtualThreadsAvailable()
+    {
+        try
+        {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        }
+        catch (NoSuchMethodException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Get a factory for threads in the current mode. Platform threads are
+     * created as daemon threads.
+     *
+     * @param name the name prefix for created threads
+     * @return a thread factory
+     */
+    public static ThreadFactory factory(String name)
+    {
+        if (mode == Mode.VIRTUAL)
+            return virtualFactory(name);
+
+        return new PlatformThreadFactory(name);
+    }
+
+    private static ThreadFactory virtualFactory(String name)
+    {
+        try
+        {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method nameMethod = builderClass.getMethod("name", String.class, long.class);
+            Method factoryMethod = builderClass.getMethod("factory");
+
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = nameMethod.invoke(builder, name + " ", 1L);
+
+            return (ThreadFactory) factoryMethod.invoke(builder);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            log.warn("Failed to create a virtual thread factory; falling back to platform threads", e);
+            return new PlatformThreadFactory(name);
+        }
+    }
+
+    private static class PlatformThreadFactory implements ThreadFactory
+    {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        public PlatformThreadFactory(String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, this.name + " " + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
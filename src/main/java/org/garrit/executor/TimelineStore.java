@@ -0,0 +1,76 @@
+package org.garrit.executor;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/**
+ * A bounded ring buffer of recent {@link SubmissionTimeline submission
+ * timelines}, indexed by submission ID. Once full, the oldest timeline is
+ * discarded to make room for each new one.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class TimelineStore
+{
+    private final int capacity;
+    private final ArrayDeque<SubmissionTimeline> order;
+    private final HashMap<Integer, SubmissionTimeline> timelines;
+
+    /**
+     * @param capacity the maximum number of timelines to retain
+     */
+    public TimelineStore(int capacity)
+    {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Timeline store capacity must be positive");
+
+        this.capacity = capacity;
+        this.order = new ArrayDeque<>(capacity);
+        this.timelines = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Start a new timeline for a submission. Any existing timeline for the
+     * same submission is replaced.
+     *
+     * @param id the submission ID
+     * @return the new timeline
+     */
+    public synchronized SubmissionTimeline start(int id)
+    {
+        SubmissionTimeline timeline = new SubmissionTimeline(id);
+
+        SubmissionTimeline replaced = this.timelines.put(id, timeline);
+        if (replaced != null)
+            this.order.remove(replaced);
+
+        while (this.order.size() >= this.capacity)
+        {
+            SubmissionTimeline evicted = this.order.removeFirst();
+            this.timelines.remove(evicted.getId());
+        }
+
+        this.order.addLast(timeline);
+
+        return timeline;
+    }
+
+    /**
+     * @param id the submission ID
+     * @return the most recent timeline for the submission, or null if none is
+     *         retained
+     */
+    public synchronized SubmissionTimeline get(int id)
+    {
+        return this.timelines.get(id);
+    }
+
+    /**
+     * @return the number of timelines currently retained
+     */
+    public synchronized int size()
+    {
+        return this.order.size();
+    }
+}
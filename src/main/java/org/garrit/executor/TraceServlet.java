@@ -0,0 +1,58 @@
+package org.garrit.executor;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Serve recent {@link SubmissionTimeline submission timelines} by submission
+ * ID. Intended to be mounted on the admin connector as
+ * <code>/trace/&lt;id&gt;</code>.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class TraceServlet extends HttpServlet
+{
+    private static final long serialVersionUID = 1L;
+
+    private final transient TimelineStore timelines;
+    private final transient ObjectMapper mapper;
+
+    public TraceServlet(TimelineStore timelines, ObjectMapper mapper)
+    {
+        this.timelines = timelines;
+        this.mapper = mapper;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        String path = request.getPathInfo();
+
+        int id;
+        try
+        {
+            id = Integer.parseInt(path == null ? "" : path.replaceFirst("^/", ""));
+        }
+        catch (NumberFormatException e)
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Expected a submission ID");
+            return;
+        }
+
+        SubmissionTimeline timeline = this.timelines.get(id);
+        if (timeline == null)
+        {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "No timeline retained for submission");
+            return;
+        }
+
+        response.setContentType("application/json");
+        this.mapper.writeValue(response.getOutputStream(), timeline);
+    }
+}
@@ -0,0 +1,32 @@
+package org.garrit.executor;
+
+import java.util.List;
+
+import org.garrit.common.messages.Execution;
+import org.garrit.common.messages.RegisteredSubmission;
+
+/**
+ * An {@link Execution execution} which carries the
+ * {@link SubmissionTimeline timeline} of its submission to the negotiator.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class TracedExecution extends Execution
+{
+    private final SubmissionTimeline timeline;
+
+    public TracedExecution(RegisteredSubmission submission, SubmissionTimeline timeline)
+    {
+        super(submission);
+        this.timeline = timeline;
+    }
+
+    /**
+     * @return the events recorded for the submission at the time of encoding
+     */
+    public List<SubmissionTimeline.Event> getTimeline()
+    {
+        return this.timeline.getEvents();
+    }
+}
@@ -0,0 +1,89 @@
+package org.garrit.executor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded set of names recently used by the executor, such as the
+ * languages whose toolchains have recently run. Names are forgotten once
+ * unused for longer than the set's time to live, or least recently used first
+ * once the set is full.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class WarmSet
+{
+    private final long ttl;
+    private final LongSupplier clock;
+    /**
+     * Last use of each name in milliseconds, least recently used first.
+     */
+    private final LinkedHashMap<String, Long> lastUsed;
+
+    /**
+     * @param capacity the maximum number of names to retain
+     * @param ttl how long an unused name is retained, in seconds
+     */
+    public WarmSet(int capacity, long ttl)
+    {
+        this(capacity, ttl, System::currentTimeMillis);
+    }
+
+    /**
+     * @param capacity the maximum number of names to retain
+     * @param ttl how long an unused name is retained, in seconds
+     * @param clock the source of the current time in milliseconds
+     */
+    public WarmSet(int capacity, long ttl, LongSupplier clock)
+    {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Warm set capacity must be positive");
+
+        this.ttl = TimeUnit.SECONDS.toMillis(ttl);
+        this.clock = clock;
+        this.lastUsed = new LinkedHashMap<String, Long>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest)
+            {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Record that a name has just been used.
+     *
+     * @param name the name
+     */
+    public synchronized void touch(String name)
+    {
+        if (name != null)
+            this.lastUsed.put(name, this.clock.getAsLong());
+    }
+
+    /**
+     * @return the names currently warm, most recently used first
+     */
+    public synchronized List<String> get()
+    {
+        long expired = this.clock.getAsLong() - this.ttl;
+
+        Iterator<Map.Entry<String, Long>> entries = this.lastUsed.entrySet().iterator();
+        while (entries.hasNext() && entries.next().getValue() < expired)
+            entries.remove();
+
+        ArrayList<String> names = new ArrayList<>(this.lastUsed.keySet());
+        Collections.reverse(names);
+        return names;
+    }
+}
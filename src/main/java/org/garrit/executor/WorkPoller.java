@@ -0,0 +1,133 @@
+package org.garrit.executor;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.garrit.common.messages.RegisteredSubmission;
+
+/**
+ * Pull work from the negotiator rather than waiting for it to be pushed. The
+ * poller long-polls the negotiator for as many submissions as the
+ * {@link ExecutionManager execution manager} has free slots, and only asks
+ * again once a slot is free, so a faster executor takes on more work and no
+ * executor builds up a backlog.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+@Slf4j
+public class WorkPoller implements Runnable
+{
+    /**
+     * Time in seconds allowed on top of the poll timeout for the negotiator's
+     * response to arrive.
+     */
+    private static final int RESPONSE_GRACE = 10;
+    /**
+     * Time in seconds to wait after a failed poll before trying again.
+     */
+    private static final int RETRY_DELAY = 5;
+
+    private final ExecutionManager manager;
+    private final NegotiatorClient client;
+    private final String name;
+    private final int pollTimeout;
+
+    /**
+     * @param manager the execution manager to feed
+     * @param client the client through which to reach the negotiator
+     * @param name the executor's name, given to the negotiator, or null
+     * @param pollTimeout the time in seconds for which the negotiator may hold
+     *            a poll open
+     */
+    public WorkPoller(ExecutionManager manager, NegotiatorClient client, String name, int pollTimeout)
+    {
+        this.manager = manager;
+        this.client = client;
+        this.name = name;
+        this.pollTimeout = pollTimeout;
+    }
+
+    @Override
+    public void run()
+    {
+        log.info("Starting work polling thread");
+
+        try
+        {
+            while (true)
+            {
+                if (Thread.interrupted())
+                    break;
+
+                this.manager.awaitFreeSlot(TimeUnit.SECONDS.toMillis(this.pollTimeout));
+
+                try
+                {
+                    this.poll();
+                }
+                catch (IOException e)
+                {
+                    log.error("Failed to poll negotiator for work", e);
+                    TimeUnit.SECONDS.sleep(RETRY_DELAY);
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            /* If we've been interrupted, just finish polling. */
+        }
+
+        log.info("Finishing work polling thread");
+    }
+
+    /**
+     * Ask the negotiator for as much work as there are free slots, and
+     * enqueue whatever it gives. Nothing is asked for if no slots are free.
+     * Submissions which cannot be executed here are reported back as errors.
+     *
+     * @return the number of submissions enqueued
+     * @throws IOException if the negotiator cannot be polled
+     */
+    public int poll() throws IOException
+    {
+        int slots = this.manager.getFreeSlots();
+        if (slots <= 0)
+            return 0;
+
+        RegisteredSubmission[] work = this.client.get(this.workPath(slots), RegisteredSubmission[].class,
+                this.pollTimeout + RESPONSE_GRACE);
+        if (work == null)
+            return 0;
+
+        int enqueued = 0;
+        for (RegisteredSubmission submission : work)
+        {
+            try
+            {
+                this.manager.enqueue(submission);
+                enqueued++;
+            }
+            catch (UnavailableExecutorException e)
+            {
+                log.warn("Pulled submission {} for which no executor is available", submission.getId());
+                this.manager.reject(submission, e.getMessage());
+            }
+        }
+
+        return enqueued;
+    }
+
+    private String workPath(int slots) throws UnsupportedEncodingException
+    {
+        String path = String.format("work?slots=%d&wait=%d", slots, this.pollTimeout);
+        if (this.name != null)
+            path += "&executor=" + URLEncoder.encode(this.name, "UTF-8");
+
+        return path;
+    }
+}
@@ -0,0 +1,20 @@
+package org.garrit.executor;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a submission writes more into its environment's workspace than
+ * the workspace's quota allows.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class WorkspaceQuotaException extends IOException
+{
+    private static final long serialVersionUID = 1L;
+
+    public WorkspaceQuotaException(String message, Throwable throwable)
+    {
+        super(message, throwable);
+    }
+}
@@ -0,0 +1,48 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * A fixed, CPU-bound workload mixing the operations typical of contest
+ * solutions: integer arithmetic, sorting, hashing and string building. Its
+ * runtime on a host, relative to a reference machine, gives the host's speed.
+ */
+public class Calibrate
+{
+    public static void main(String[] args)
+    {
+        Random random = new Random(0x9a7717L);
+        long checksum = 0;
+
+        /* Arithmetic: sieve of Eratosthenes. */
+        boolean[] composite = new boolean[20000000];
+        for (int i = 2; (long) i * i < composite.length; i++)
+            if (!composite[i])
+                for (int j = i * i; j < composite.length; j += i)
+                    composite[j] = true;
+        for (int i = 2; i < composite.length; i++)
+            if (!composite[i])
+                checksum += i;
+
+        /* Sorting. */
+        int[] values = new int[4000000];
+        for (int i = 0; i < values.length; i++)
+            values[i] = random.nextInt();
+        Arrays.sort(values);
+        checksum += values[values.length / 2];
+
+        /* Hashing and boxing. */
+        HashMap<Integer, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 2000000; i++)
+            counts.merge(random.nextInt(100000), 1, Integer::sum);
+        checksum += counts.size();
+
+        /* String building. */
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000000; i++)
+            builder.append(i % 97);
+        checksum += builder.toString().hashCode();
+
+        System.out.println(checksum);
+    }
+}
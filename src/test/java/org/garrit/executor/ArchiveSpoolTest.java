@@ -0,0 +1,136 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.garrit.common.messages.RegisteredSubmission;
+import org.garrit.common.messages.SubmissionFile;
+import org.junit.Test;
+
+public class ArchiveSpoolTest
+{
+    @Test
+    public void testSpoolsFilesToDisk() throws IOException
+    {
+        Path root = Files.createTempDirectory("spool-test");
+        ArchiveSpool spool = new ArchiveSpool(root, 1024, 8);
+
+        List<SubmissionFile> files = spool.spool(zip("Main.java", "class Main {}", "util/Helper.java", "class Helper {}"));
+
+        assertEquals(2, files.size());
+        SpooledSubmissionFile helper = (SpooledSubmissionFile) files.get(1);
+        assertEquals("util/Helper.java", helper.getFilename());
+        assertNull(helper.getContents());
+        assertEquals(15, helper.getLength());
+        assertArrayEquals("class Helper {}".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(helper.getSource()));
+
+        RegisteredSubmission submission = new RegisteredSubmission();
+        submission.setFiles(files);
+        ArchiveSpool.discard(submission);
+        assertFalse(Files.exists(helper.getSpool()));
+    }
+
+    @Test
+    public void testRejectsOversizedArchives() throws IOException
+    {
+        Path root = Files.createTempDirectory("spool-test");
+        ArchiveSpool spool = new ArchiveSpool(root, 10, 8);
+
+        try
+        {
+            spool.spool(zip("Main.java", "class Main {}"));
+            fail("Oversized archive was accepted");
+        }
+        catch (ArchiveLimitException e)
+        {
+        }
+
+        assertEquals(0, root.toFile().list().length);
+    }
+
+    @Test(expected = ArchiveLimitException.class)
+    public void testRejectsArchivesWithTooManyEntries() throws IOException
+    {
+        ArchiveSpool spool = new ArchiveSpool(Files.createTempDirectory("spool-test"), 1024, 1);
+        spool.spool(zip("A.java", "a", "B.java", "b"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsEntriesOutsideArchive() throws IOException
+    {
+        ArchiveSpool spool = new ArchiveSpool(Files.createTempDirectory("spool-test"), 1024, 8);
+        spool.spool(zip("../Evil.java", "evil"));
+    }
+
+    @Test
+    public void testSpooledAndInlineFilesShareCacheKeys() throws IOException
+    {
+        ArchiveSpool spool = new ArchiveSpool(Files.createTempDirectory("spool-test"), 1024, 8);
+
+        RegisteredSubmission spooled = new RegisteredSubmission();
+        spooled.setLanguage("java");
+        spooled.setFiles(spool.spool(zip("Main.java", "class Main {}")));
+
+        SubmissionFile file = new SubmissionFile();
+        file.setFilename("Main.java");
+        file.setContents("class Main {}".getBytes(StandardCharsets.UTF_8));
+        RegisteredSubmission inline = new RegisteredSubmission();
+        inline.setLanguage("java");
+        inline.setFiles(Arrays.asList(file));
+
+        assertEquals(ResultCache.key(inline, "v1"), ResultCache.key(spooled, "v1"));
+    }
+
+    @Test
+    public void testSpillsInlineFiles() throws IOException
+    {
+        ArchiveSpool spool = new ArchiveSpool(Files.createTempDirectory("spool-test"), 1024, 8);
+
+        SubmissionFile file = new SubmissionFile();
+        file.setFilename("Main.java");
+        file.setContents("class Main {}".getBytes(StandardCharsets.UTF_8));
+        RegisteredSubmission inline = new RegisteredSubmission();
+        inline.setLanguage("java");
+        inline.setFiles(Arrays.asList(file));
+        String key = ResultCache.key(inline, "v1");
+
+        assertEquals(13, ArchiveSpool.inlineSize(inline.getFiles()));
+        inline.setFiles(spool.spill(inline.getFiles()));
+        assertEquals(0, ArchiveSpool.inlineSize(inline.getFiles()));
+        assertEquals(key, ResultCache.key(inline, "v1"));
+
+        SpooledSubmissionFile spilled = (SpooledSubmissionFile) inline.getFiles().get(0);
+        assertEquals("Main.java", spilled.getFilename());
+        assertArrayEquals("class Main {}".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(spilled.getSource()));
+    }
+
+    private static ByteArrayInputStream zip(String... namesAndContents) throws IOException
+    {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive))
+        {
+            for (int i = 0; i < namesAndContents.length; i += 2)
+            {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+
+        return new ByteArrayInputStream(archive.toByteArray());
+    }
+}
@@ -0,0 +1,30 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class CalibrationTest
+{
+    @Test
+    public void testUsesMedianRuntime()
+    {
+        assertEquals(2.0, Calibration.speedFactor(1000, Arrays.asList(900, 500, 100)), 1e-9);
+        assertEquals(0.5, Calibration.speedFactor(1000, Arrays.asList(3000, 1000, 1000, 9000)), 1e-9);
+    }
+
+    @Test
+    public void testSlowerHostHasSmallerFactor()
+    {
+        assertEquals(0.25, Calibration.speedFactor(1000, Collections.singletonList(4000)), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNoRuntimes()
+    {
+        Calibration.speedFactor(1000, Collections.emptyList());
+    }
+}
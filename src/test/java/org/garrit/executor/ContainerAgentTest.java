@@ -0,0 +1,93 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ContainerAgentTest
+{
+    @Test
+    public void testRunsCommandsWithInput() throws IOException
+    {
+        Path runs = Files.createTempDirectory("agent-test");
+        Path run = Files.createDirectory(runs.resolve("1"));
+        Files.write(run.resolve(ContainerAgent.COMMAND_FILE),
+                "/bin/sh\0-c\0cat; echo oops >&2; exit 3".getBytes(StandardCharsets.UTF_8));
+        Files.write(run.resolve(ContainerAgent.STDIN_FILE), "hello".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("DONE 1 3\n", this.serve(runs, "RUN 1 10\nEXIT\n"));
+        assertEquals("hello", new String(Files.readAllBytes(run.resolve(ContainerAgent.STDOUT_FILE))));
+        assertEquals("oops\n", new String(Files.readAllBytes(run.resolve(ContainerAgent.STDERR_FILE))));
+    }
+
+    @Test
+    public void testKillsCommandsWhichTimeOut() throws IOException
+    {
+        Path runs = Files.createTempDirectory("agent-test");
+        Path run = Files.createDirectory(runs.resolve("2"));
+        Files.write(run.resolve(ContainerAgent.COMMAND_FILE), "sleep\u000030".getBytes(StandardCharsets.UTF_8));
+
+        long started = System.currentTimeMillis();
+        assertEquals("TIMEOUT 2\n", this.serve(runs, "RUN 2 1\n"));
+        assertEquals(true, System.currentTimeMillis() - started < 10000);
+    }
+
+    @Test
+    public void testReportsMissingRuns() throws IOException
+    {
+        Path runs = Files.createTempDirectory("agent-test");
+
+        String response = this.serve(runs, "RUN 3 1\nbogus\n");
+        assertEquals(true, response.startsWith("ERROR 3 "));
+        assertEquals(true, response.endsWith("ERROR - Malformed request\n"));
+    }
+
+    @Test
+    public void testFindsStrayProcesses() throws IOException
+    {
+        Path proc = Files.createTempDirectory("proc-test");
+        process(proc, "1", "(init) S 0");
+        process(proc, "100", "(java) S 1");
+        process(proc, "200", "(sleep) S 100");
+        process(proc, "300", "(a (b) c) R 1");
+        process(proc, "400", "(defunct) Z 1");
+        Files.createSymbolicLink(proc.resolve("self"), proc.resolve("100"));
+
+        assertEquals(Arrays.asList("200", "300"), sorted(ContainerAgent.strays(proc)));
+    }
+
+    private static void process(Path proc, String pid, String stat) throws IOException
+    {
+        Path process = Files.createDirectory(proc.resolve(pid));
+        Files.write(process.resolve("stat"), (pid + " " + stat + " 1 1 0\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> sorted(List<String> values)
+    {
+        ArrayList<String> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    private String serve(Path runs, String requests) throws IOException
+    {
+        ByteArrayOutputStream responses = new ByteArrayOutputStream();
+        new ContainerAgent(runs, new PrintStream(responses, true, "UTF-8"))
+                .serve(new BufferedReader(new StringReader(requests)));
+
+        return new String(responses.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
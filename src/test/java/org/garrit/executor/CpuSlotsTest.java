@@ -0,0 +1,50 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test the {@link CpuSlots CPU slot} division of cores.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class CpuSlotsTest
+{
+    @Test
+    public void testParseCpuList()
+    {
+        assertEquals(Arrays.asList(0, 1, 2, 3, 6, 8, 9), CpuSlots.parseCpuList("0-3,6,8-9\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseMalformedCpuList()
+    {
+        CpuSlots.parseCpuList("0-x");
+    }
+
+    @Test
+    public void testDividesCores()
+    {
+        List<Integer> cpus = CpuSlots.parseCpuList("0-7");
+        CpuSlots slots = new CpuSlots(cpus, 1, 2);
+
+        assertEquals(Arrays.asList(0), slots.getReserved());
+        assertEquals(3, slots.getSlots().size());
+        assertEquals("1,2", slots.getSlots().get(0).getCpuList());
+        assertEquals("5,6", slots.getSlots().get(2).getCpuList());
+        assertEquals("0", slots.getReservedSlot().getCpuList());
+        assertNull(new CpuSlots(cpus, 0, 2).getReservedSlot());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsTooFewCores()
+    {
+        new CpuSlots(Arrays.asList(0, 1), 2, 1);
+    }
+}
@@ -0,0 +1,93 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.garrit.executor.ExecutionManagerTest.MockExecutor;
+import org.junit.Test;
+
+/**
+ * Test the {@link ExecuteResource execution resource}.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class ExecuteResourceTest
+{
+    private static final String FILE = "{\"filename\": \"Main.java\", \"contents\": \"\"}";
+
+    @Test
+    public void testEnqueuesNdjsonSubmissions() throws Exception
+    {
+        ExecutorFactory.registerExecutor("foo", MockExecutor.class);
+
+        ExecutionManager manager = new ExecutionManager(Paths.get("."), new URI(""));
+        ExecuteResource resource = new ExecuteResource(manager);
+
+        String body = submission(1, "foo") + "\n"
+                + "\n"
+                + submission(2, "nope") + "\n"
+                + "not json\n"
+                + submission(3, "foo");
+
+        List<EnqueueResult> results = resource.executeSubmissions(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), false, null);
+        manager.close();
+
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isAccepted());
+        assertFalse(results.get(1).isAccepted());
+        assertEquals(Integer.valueOf(2), results.get(1).getId());
+        assertFalse(results.get(2).isAccepted());
+        assertEquals(4, results.get(2).getLine());
+        assertTrue(results.get(3).isAccepted());
+
+        assertEquals(2, manager.getQueued().size());
+        assertTrue(manager.getQueued().contains(3));
+    }
+
+    @Test
+    public void testRejectsIncompleteNdjsonSubmissions() throws Exception
+    {
+        ExecutorFactory.registerExecutor("foo", MockExecutor.class);
+
+        ExecutionManager manager = new ExecutionManager(Paths.get("."), new URI(""));
+        ExecuteResource resource = new ExecuteResource(manager);
+
+        String body = "{\"id\": 1, \"language\": \"foo\", \"files\": [" + FILE + "]}\n"
+                + "{\"id\": 2, \"language\": \"foo\", \"problem\": \"sum\"}\n"
+                + "{\"id\": 3, \"language\": \"foo\", \"problem\": \"sum\", \"files\": []}\n"
+                + "{\"id\": 4, \"language\": \"foo\", \"problem\": \"sum\", \"files\": [null]}\n"
+                + submission(5, "foo");
+
+        List<EnqueueResult> results = resource.executeSubmissions(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), false, null);
+        manager.close();
+
+        assertEquals(5, results.size());
+        assertEquals("Missing problem", results.get(0).getReason());
+        assertEquals("Missing files", results.get(1).getReason());
+        assertEquals("Missing files", results.get(2).getReason());
+        assertEquals("Missing file", results.get(3).getReason());
+        assertTrue(results.get(4).isAccepted());
+
+        assertEquals(Arrays.asList(5), manager.getQueued());
+    }
+
+    /**
+     * @return a complete submission as a line of JSON
+     */
+    private static String submission(int id, String language)
+    {
+        return String.format("{\"id\": %d, \"language\": \"%s\", \"problem\": \"sum\", \"files\": [%s]}",
+                id, language, FILE);
+    }
+}
@@ -1,19 +1,43 @@
 package org.garrit.executor;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.garrit.common.ProblemCase;
+import org.garrit.common.messages.ErrorSubmission;
+import org.garrit.common.messages.ErrorType;
+import org.garrit.common.messages.Execution;
 import org.garrit.common.messages.ExecutionCase;
 import org.garrit.common.messages.RegisteredSubmission;
+import org.garrit.common.messages.SubmissionFile;
+import org.garrit.executor.SubmissionTimeline.Event;
+import org.garrit.executor.SubmissionTimeline.Stage;
+import org.junit.After;
 import org.junit.Test;
 
 public class ExecutionManagerTest
 {
+    @After
+    public void tearDown()
+    {
+        ExecutionEnvironmentFactory.configure(LXCEnvironment::new);
+    }
+
     @Test
     public void testEnqueuesProblems() throws Exception
     {
@@ -31,6 +55,461 @@ public class ExecutionManagerTest
         assertTrue(executor.getQueued().contains(0));
     }
 
+    @Test
+    public void testReportsCapacity() throws Exception
+    {
+        RegisteredSubmission submission = new RegisteredSubmission();
+        submission.setId(0);
+        submission.setLanguage("foo");
+
+        ExecutorFactory.registerExecutor("foo", MockExecutor.class);
+
+        ExecutionManager executor = new ExecutionManager(Paths.get("."), new URI(""));
+        assertEquals(1, executor.getFreeSlots());
+        assertEquals(0, executor.getRunning());
+
+        executor.enqueue(submission);
+        executor.enqueue(submission);
+        executor.close();
+
+        assertEquals(0, executor.getFreeSlots());
+        assertEquals(0, executor.getEstimatedWait());
+    }
+
+    @Test
+    public void testFreesSlotOnceExecuted() throws Exception
+    {
+        Path problems = Files.createTempDirectory("slot-test");
+        problem(problems, "sum", problemCase("passes", null));
+
+        ExecutorFactory.registerExecutor("scripted", ScriptedExecutor.class);
+        ExecutionEnvironmentFactory.configure(slot -> new MockEnvironment());
+
+        ExecutionManager executor = new ExecutionManager(problems, new URI(""));
+        executor.enqueue(submission(7, "sum", "scripted"));
+        assertEquals(0, executor.getFreeSlots());
+
+        executor.executeNext(null);
+        executor.close();
+
+        assertEquals(1, executor.getFreeSlots());
+        assertEquals(0, executor.getRunning());
+    }
+
+    @Test
+    public void testQueueSnapshotIsReusedUntilQueueChanges() throws Exception
+    {
+        RegisteredSubmission submission = new RegisteredSubmission();
+        submission.setId(0);
+        submission.setLanguage("foo");
+
+        ExecutorFactory.registerExecutor("foo", MockExecutor.class);
+
+        ExecutionManager executor = new ExecutionManager(Paths.get("."), new URI(""));
+        ArrayList<Integer> empty = executor.getQueued();
+        assertSame(empty, executor.getQueued());
+
+        executor.enqueue(submission);
+        executor.close();
+
+        assertNotSame(empty, executor.getQueued());
+        assertEquals(1, executor.getQueued().size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testQueueSnapshotCannotBeModified() throws Exception
+    {
+        ExecutionManager executor = new ExecutionManager(Paths.get("."), new URI(""));
+        executor.close();
+
+        executor.getQueued().add(0);
+    }
+
+    @Test
+    public void testReportsPipelineStages() throws Exception
+    {
+        ExecutorConfiguration config = new ExecutorConfiguration();
+        config.setProblems(Paths.get("."));
+        config.setNegotiator(new URI(""));
+        config.setPipelined(true);
+        config.setPreparers(2);
+
+        ExecutionManager executor = new ExecutionManager(config);
+        executor.close();
+
+        assertEquals(Arrays.asList("prepare", "compile", "evaluate", "report"),
+                new ArrayList<>(executor.getStages().keySet()));
+        assertEquals(2, executor.getStages().get("prepare").getSize());
+        assertEquals(1, executor.getStages().get("evaluate").getSize());
+        assertEquals(0, executor.getStages().get("compile").getBusy());
+
+        /* Two preparers, a compiler and a worker, and a place in each of the
+         * queues feeding the compiler and the worker. */
+        assertEquals(6, executor.getFreeSlots());
+    }
+
+    @Test
+    public void testSpillsLargeSubmissions() throws Exception
+    {
+        SubmissionFile file = new SubmissionFile();
+        file.setFilename("Large.java");
+        file.setContents(new byte[64]);
+
+        RegisteredSubmission submission = new RegisteredSubmission();
+        submission.setId(0);
+        submission.setLanguage("foo");
+        submission.setFiles(Arrays.asList(file));
+
+        ExecutorFactory.registerExecutor("foo", MockExecutor.class);
+
+        ExecutorConfiguration config = new ExecutorConfiguration();
+        config.setProblems(Paths.get("."));
+        config.setNegotiator(new URI(""));
+        config.setArchiveSpool(Files.createTempDirectory("spill-test"));
+        config.setSpillThreshold(16);
+
+        ExecutionManager executor = new ExecutionManager(config);
+        executor.enqueue(submission);
+        executor.close();
+
+        SubmissionFile queued = executor.submissionQueue.peek().getSubmission().getFiles().get(0);
+        assertTrue(queued instanceof SpooledSubmissionFile);
+        assertNull(queued.getContents());
+        assertFalse("Spool outlived the executor", Files.exists(((SpooledSubmissionFile) queued).getSource()));
+    }
+
+    @Test
+    public void testRejudgeListsRejectedSubmissions() throws Exception
+    {
+        Path problems = Files.createTempDirectory("rejudge-test");
+        problem(problems, "sum", problemCase("1", "1 2\n"));
+
+        ExecutorFactory.registerExecutor("foo", MockExecutor.class);
+
+        ExecutionManager executor = new ExecutionManager(problems, new URI(""));
+        RejudgeBatch batch = executor.rejudge("sum", Arrays.asList(
+                submission(1, "sum", "foo"), submission(2, "product", "foo"), submission(3, "sum", "bar")));
+        executor.close();
+
+        assertEquals(2, batch.getRejected());
+        assertEquals(Arrays.asList(2, 3), new ArrayList<>(batch.getRejections().keySet()));
+        assertTrue(batch.getRejections().get(3).contains("bar"));
+        assertEquals(Arrays.asList(1), executor.getQueued());
+    }
+
+    @Test
+    public void testRejudgeReusesCompilations() throws Exception
+    {
+        Path problems = Files.createTempDirectory("compilation-test");
+        problem(problems, "sum", problemCase("1", null));
+
+        ExecutorFactory.registerExecutor("compiled", CompilingExecutor.class);
+        ExecutionEnvironmentFactory.configure(slot -> new MockEnvironment());
+        CompilingExecutor.compilations.set(0);
+        CompilingExecutor.restorations.set(0);
+
+        /* The same source under another entry point gives a different result,
+         * but compiles to the same classes. */
+        RegisteredSubmission first = submission(1, "sum", "compiled");
+        RegisteredSubmission second = submission(2, "sum", "compiled");
+        second.setFiles(first.getFiles());
+        second.setEntryPoint("Other");
+
+        ExecutionManager executor = new ExecutionManager(problems, new URI(""));
+        RegisteredSubmission third = submission(3, "sum", "compiled");
+        executor.rejudge("sum", Arrays.asList(first, second, third));
+        executor.executeNext(null);
+        executor.executeNext(null);
+        executor.executeNext(null);
+        executor.close();
+
+        assertEquals(2, CompilingExecutor.compilations.get());
+        assertEquals(1, CompilingExecutor.restorations.get());
+        assertEquals(2, executor.getCompilationCache().size());
+    }
+
+    @Test
+    public void testStoresOutputsByCaseIndexAfterFailure() throws Exception
+    {
+        Path problems = Files.createTempDirectory("output-test");
+        problem(problems, "sum", problemCase("fails", null), problemCase("passes", null));
+
+        ExecutorFactory.registerExecutor("scripted", ScriptedExecutor.class);
+        ExecutionEnvironmentFactory.configure(slot -> new MockEnvironment());
+
+        ExecutorConfiguration config = new ExecutorConfiguration();
+        config.setProblems(problems);
+        config.setNegotiator(new URI(""));
+        config.setOutputDigests(true);
+
+        ExecutionManager executor = new ExecutionManager(config);
+        executor.enqueue(submission(7, "sum", "scripted"));
+        executor.executeNext(null);
+        executor.close();
+
+        assertNull(executor.getOutputStore().get(7, 0));
+        assertEquals("passes", new String(executor.getOutputStore().get(7, 1), StandardCharsets.UTF_8));
+
+        Execution execution = executor.outgoingQueue.poll();
+        DigestedExecutionCase passed = (DigestedExecutionCase) execution.getCases().get(
+                execution.getCases().size() - 1);
+        assertEquals("passes", passed.getName());
+        assertEquals(1, passed.getCaseIndex());
+    }
+
+    @Test
+    public void testReportsRuntimeErrorOnce() throws Exception
+    {
+        Path problems = Files.createTempDirectory("runtime-error-test");
+        problem(problems, "sum", problemCase("1", "1 2\n"), problemCase("crashes", "crash\n"),
+                problemCase("3", "3 4\n"));
+
+        ExecutorFactory.registerExecutor("java", JavaExecutor.class);
+        ExecutionEnvironmentFactory.configure(slot -> new CrashingEnvironment());
+
+        ExecutorConfiguration config = new ExecutorConfiguration();
+        config.setProblems(problems);
+        config.setNegotiator(new URI(""));
+
+        ExecutionManager executor = new ExecutionManager(config);
+        executor.enqueue(submission(7, "sum", "java"), failFast());
+        executor.executeNext(null);
+        executor.close();
+
+        assertEquals(1, executor.errorQueue.size());
+        ErrorSubmission<RegisteredSubmission> error = executor.errorQueue.poll();
+        assertEquals(ErrorType.E_RUNTIME, error.getType());
+        assertTrue(error.getMessage().contains("exited with code 1"));
+        assertEquals(1, executor.outgoingQueue.size());
+
+        List<ExecutionCase> cases = executor.outgoingQueue.poll().getCases();
+        assertEquals(3, cases.size());
+        assertFalse(cases.get(0) instanceof FailedExecutionCase);
+
+        FailedExecutionCase failed = (FailedExecutionCase) cases.get(1);
+        assertEquals("crashes", failed.getName());
+        assertEquals(1, failed.getCaseIndex());
+        assertTrue(failed.getMessage().contains("exited with code 1"));
+
+        assertTrue(cases.get(2) instanceof SkippedExecutionCase);
+    }
+
+    @Test
+    public void testReportsUnexpectedFailuresAndCarriesOn() throws Exception
+    {
+        Path problems = Files.createTempDirectory("unexpected-failure-test");
+        problem(problems, "buggy", problemCase("throws", null));
+        problem(problems, "sum", problemCase("passes", null));
+
+        ExecutorFactory.registerExecutor("scripted", ScriptedExecutor.class);
+        ExecutionEnvironmentFactory.configure(slot -> new MockEnvironment());
+
+        ExecutionManager executor = new ExecutionManager(problems, new URI(""));
+        executor.enqueue(submission(7, "buggy", "scripted"));
+        executor.enqueue(submission(8, "sum", "scripted"));
+        executor.executeNext(null);
+        executor.executeNext(null);
+        executor.close();
+
+        assertEquals(0, executor.getRunning());
+
+        assertEquals(1, executor.errorQueue.size());
+        ErrorSubmission<RegisteredSubmission> error = executor.errorQueue.poll();
+        assertEquals(7, error.getId());
+        assertEquals(ErrorType.E_INTERNAL, error.getType());
+
+        assertEquals(1, executor.outgoingQueue.size());
+        assertEquals(8, executor.outgoingQueue.poll().getId());
+    }
+
+    @Test
+    public void testRecordsReclaimedContainers() throws Exception
+    {
+        Path problems = Files.createTempDirectory("reclaim-test");
+        problem(problems, "sum", problemCase("times out", null), problemCase("hangs", null));
+
+        ExecutorFactory.registerExecutor("scripted", ScriptedExecutor.class);
+        ExecutionEnvironmentFactory.configure(slot -> new MockEnvironment());
+
+        ExecutionManager executor = new ExecutionManager(problems, new URI(""));
+        executor.enqueue(submission(7, "sum", "scripted"));
+        executor.executeNext(null);
+        executor.close();
+
+        ArrayList<String> reclaimed = new ArrayList<>();
+        for (Event event : executor.getTimelines().get(7).getEvents())
+            if (event.getStage() == Stage.RECLAIMED)
+                reclaimed.add(event.getDetail());
+
+        assertEquals(Arrays.asList("times out in 42 ms", "hangs unconfirmed"), reclaimed);
+    }
+
+    private static SubmissionOptions failFast()
+    {
+        SubmissionOptions options = new SubmissionOptions();
+        options.setFailFast(true);
+        return options;
+    }
+
+    static RegisteredSubmission submission(int id, String problem, String language)
+    {
+        SubmissionFile file = new SubmissionFile();
+        file.setFilename("Main.java");
+        file.setContents(("class Main {} // " + id).getBytes(StandardCharsets.UTF_8));
+
+        RegisteredSubmission submission = new RegisteredSubmission();
+        submission.setId(id);
+        submission.setProblem(problem);
+        submission.setLanguage(language);
+        submission.setEntryPoint("Main");
+        submission.setFiles(Arrays.asList(file));
+        return submission;
+    }
+
+    static ProblemCase problemCase(String name, String input)
+    {
+        ProblemCase problemCase = new ProblemCase();
+        problemCase.setName(name);
+        problemCase.setTimeLimit(1);
+        if (input != null)
+            problemCase.setInput(input.getBytes(StandardCharsets.UTF_8));
+
+        return problemCase;
+    }
+
+    /**
+     * Set up a problem as an up-to-date {@link PackedProblem pack}, which
+     * needs nothing else in the problem's directory to be loaded.
+     */
+    static void problem(Path problems, String name, ProblemCase... cases) throws IOException
+    {
+        Files.createDirectories(problems.resolve(name));
+        PackedProblem.write(Arrays.asList(cases), ProblemVersions.sourceVersion(problems, name),
+                PackedProblem.location(problems, name));
+    }
+
+    /**
+     * An environment in which nothing can be run, for executors which don't
+     * need one.
+     */
+    public static class MockEnvironment extends ExecutionEnvironment
+    {
+        @Override
+        public Path unpack(List<SubmissionFile> files)
+        {
+            return Paths.get("/");
+        }
+
+        @Override
+        public Path unpackInput(byte[] input)
+        {
+            return Paths.get("/");
+        }
+
+        @Override
+        public EnvironmentResponse execute(List<String> command, String input, long timeout) throws IOException
+        {
+            throw new IOException("Nothing can be run in a mock environment");
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+    /**
+     * An environment in which any program given the input "crash" exits with
+     * an uncaught exception, and anything else succeeds.
+     */
+    public static class CrashingEnvironment extends MockEnvironment
+    {
+        @Override
+        public EnvironmentResponse execute(List<String> command, String input, long timeout)
+        {
+            if ("crash\n".equals(input))
+                return new EnvironmentResponse(1, "",
+                        "Exception in thread \"main\" java.lang.RuntimeException\n80");
+
+            return new EnvironmentResponse(0, "3\n", "80");
+        }
+    }
+
+    /**
+     * An executor which fails any case named "fails", times out any named
+     * "times out" or "hangs" (the latter never confirmed reclaimed), breaks
+     * on any named "throws", and otherwise outputs the case's name.
+     */
+    public static class ScriptedExecutor extends Executor
+    {
+        public ScriptedExecutor(RegisteredSubmission submission, ExecutionEnvironment environment)
+                throws IOException
+        {
+            super(submission, environment);
+        }
+
+        @Override
+        public void compile()
+        {
+        }
+
+        @Override
+        public ExecutionCase evaluate(ProblemCase problemCase) throws IOException
+        {
+            if (problemCase.getName().equals("fails"))
+                throw new IOException("Case failed");
+            if (problemCase.getName().equals("times out"))
+                throw new IOException("Case failed", new ExecutionTimeoutException("Case timed out", 42));
+            if (problemCase.getName().equals("hangs"))
+                throw new ExecutionTimeoutException("Case timed out", -1);
+            if (problemCase.getName().equals("throws"))
+                throw new IllegalStateException("Executor bug");
+
+            ExecutionCase executionCase = new ExecutionCase();
+            executionCase.setName(problemCase.getName());
+            executionCase.setOutput(problemCase.getName().getBytes(StandardCharsets.UTF_8));
+            return executionCase;
+        }
+    }
+
+    /**
+     * An executor which counts its compilations, each producing one class.
+     */
+    public static class CompilingExecutor extends ScriptedExecutor
+    {
+        static final AtomicInteger compilations = new AtomicInteger();
+        static final AtomicInteger restorations = new AtomicInteger();
+
+        public CompilingExecutor(RegisteredSubmission submission, ExecutionEnvironment environment)
+                throws IOException
+        {
+            super(submission, environment);
+        }
+
+        @Override
+        public void compile()
+        {
+            compilations.incrementAndGet();
+        }
+
+        @Override
+        public List<SubmissionFile> getCompiledFiles()
+        {
+            SubmissionFile compiled = new SubmissionFile();
+            compiled.setFilename("Main.class");
+            compiled.setContents(new byte[] { (byte) 0xca, (byte) 0xfe });
+            return Arrays.asList(compiled);
+        }
+
+        @Override
+        public void restoreCompiledFiles(List<SubmissionFile> compiled) throws IOException
+        {
+            assertEquals("Main.class", compiled.get(0).getFilename());
+            restorations.incrementAndGet();
+            super.restoreCompiledFiles(compiled);
+        }
+    }
+
     public static class MockExecutor extends Executor
     {
         public MockExecutor(RegisteredSubmission submission, ExecutionEnvironment environment) throws IOException
@@ -1,14 +1,19 @@
 package org.garrit.executor;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
 
 import lombok.Getter;
+import lombok.Setter;
 
 import org.garrit.common.ProblemCase;
 import org.garrit.common.messages.RegisteredSubmission;
@@ -63,6 +68,85 @@ public class JavaExecutorTest
                 environment.getCommand());
     }
 
+    @Test
+    public void testEvaluationCommandWithProfile() throws IOException
+    {
+        RegisteredSubmission submission = new RegisteredSubmission();
+        submission.setEntryPoint("Hello");
+
+        ProblemCase problemCase = new ProblemCase();
+        problemCase.setName("Test case");
+        problemCase.setTimeLimit(1);
+
+        SpyEnvironment environment = new SpyEnvironment();
+
+        JavaExecutor.configure(new JavaProfile(Arrays.asList("-XX:+UseSerialGC"), 2,
+                Paths.get("/var/lib/garrit/jvm/jdk.jsa")));
+        try (JavaExecutor executor = new JavaExecutor(submission, environment))
+        {
+            executor.evaluate(problemCase);
+        }
+        finally
+        {
+            JavaExecutor.configure(JavaProfile.DEFAULT);
+        }
+
+        assertEquals(Arrays.asList("/usr/local/bin/cputime", "java", "-XX:+UseSerialGC", "-XX:TieredStopAtLevel=1",
+                "-Xshare:auto", "-XX:SharedArchiveFile=/mnt/jvm/jdk.jsa", "-cp", "/input", "Hello"),
+                environment.getCommand());
+    }
+
+    @Test
+    public void testEvaluationFeedsPackedInput() throws IOException
+    {
+        RegisteredSubmission submission = new RegisteredSubmission();
+        submission.setEntryPoint("Hello");
+
+        ProblemCase problemCase = new ProblemCase();
+        problemCase.setName("Test case");
+        problemCase.setTimeLimit(1);
+        problemCase.setInput("h\u00e9llo\n".getBytes(StandardCharsets.UTF_8));
+
+        Path pack = Files.createTempDirectory("pack-test").resolve("hello.pack");
+        PackedProblem.write(Arrays.asList(problemCase), "v1", pack);
+        ProblemCase packed = PackedProblem.open(pack).getCases().get(0);
+
+        SpyEnvironment environment = new SpyEnvironment();
+
+        try (JavaExecutor executor = new JavaExecutor(submission, environment))
+        {
+            executor.evaluate(packed);
+        }
+
+        assertEquals("h\u00e9llo\n", environment.getCommandInput());
+    }
+
+    @Test
+    public void testNonZeroExitFailsCase() throws IOException
+    {
+        RegisteredSubmission submission = new RegisteredSubmission();
+        submission.setEntryPoint("Hello");
+
+        ProblemCase problemCase = new ProblemCase();
+        problemCase.setName("Test case");
+        problemCase.setTimeLimit(1);
+
+        SpyEnvironment environment = new SpyEnvironment();
+        environment.setResponse(new EnvironmentResponse(1, "42\n",
+                "Exception in thread \"main\" java.lang.ArithmeticException: / by zero\n120"));
+
+        try (JavaExecutor executor = new JavaExecutor(submission, environment))
+        {
+            executor.evaluate(problemCase);
+            fail("Case with non-zero exit passed");
+        }
+        catch (IOException e)
+        {
+            assertTrue(e.getMessage().contains("exited with code 1"));
+            assertTrue(e.getMessage().contains("ArithmeticException"));
+        }
+    }
+
     @Getter
     public static class SpyEnvironment extends ExecutionEnvironment
     {
@@ -74,6 +158,8 @@ public class JavaExecutorTest
         private List<String> command;
         private String commandInput;
         private boolean closed = false;
+        @Setter
+        private EnvironmentResponse response = new EnvironmentResponse(0, "", "0");
 
         @Override
         public Path unpack(List<SubmissionFile> files)
@@ -94,7 +180,13 @@ public class JavaExecutorTest
         {
             this.command = command;
             this.commandInput = input;
-            return new EnvironmentResponse(0, "", "0");
+            return this.response;
+        }
+
+        @Override
+        public Path mountReadOnly(Path directory, String name)
+        {
+            return Paths.get("/mnt").resolve(name);
         }
 
         @Override
@@ -0,0 +1,54 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class JavaProfileTest
+{
+    @Test
+    public void testDefaultProfileAddsNothing()
+    {
+        assertEquals(Collections.emptyList(), JavaProfile.DEFAULT.flagsFor(1, null));
+    }
+
+    @Test
+    public void testQuickStartOnlyForShortLimits()
+    {
+        JavaProfile profile = new JavaProfile(Arrays.asList("-Xss64m"), 2, null);
+
+        assertEquals(Arrays.asList("-Xss64m", "-XX:TieredStopAtLevel=1"), profile.flagsFor(2, null));
+        assertEquals(Arrays.asList("-Xss64m"), profile.flagsFor(3, null));
+    }
+
+    @Test
+    public void testUsesArchiveWhenMounted()
+    {
+        JavaProfile profile = new JavaProfile(Collections.emptyList(), 0, Paths.get("/host/jdk.jsa"));
+
+        assertEquals(Arrays.asList("-Xshare:auto", "-XX:SharedArchiveFile=/garrit/jvm/jdk.jsa"),
+                profile.flagsFor(1, Paths.get("/garrit/jvm/jdk.jsa")));
+        assertEquals(Collections.emptyList(), profile.flagsFor(1, null));
+    }
+
+    @Test
+    public void testSizesHeapFromMemoryLimit()
+    {
+        JavaProfile profile = new JavaProfile(Collections.emptyList(), 0, null, 2L * 1024 * 1024 * 1024);
+
+        assertEquals(Arrays.asList("-Xmx1024m", "-XX:+UseSerialGC"), profile.flagsFor(1, null));
+    }
+
+    @Test
+    public void testConfiguredMemoryFlagsWin()
+    {
+        JavaProfile profile = new JavaProfile(Arrays.asList("-Xmx256m", "-XX:+UseParallelGC"), 0, null,
+                2L * 1024 * 1024 * 1024);
+
+        assertEquals(Arrays.asList("-Xmx256m", "-XX:+UseParallelGC"), profile.flagsFor(1, null));
+    }
+}
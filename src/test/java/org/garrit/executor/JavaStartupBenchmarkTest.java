@@ -0,0 +1,149 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import lombok.RequiredArgsConstructor;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Weigh the {@link JavaProfile Java profile}'s startup options against the
+ * JVM's defaults, by timing the well-behaved submission of the
+ * {@link StressTest stress suite} from launch to exit on the host's own JDK.
+ * The hostile submissions are left out: outside a container they would take
+ * the host down with them.
+ * <p>
+ * Timings mean little on a loaded build host, so the benchmark is only run
+ * when the <code>garrit.benchmark</code> system property is set, as it is by
+ * the <code>benchmark</code> Maven profile. It prints a table of its
+ * findings.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class JavaStartupBenchmarkTest
+{
+    private static final String SUBMISSION = "Sum";
+    private static final String INPUT = "1 2 3 4 5\n";
+    private static final String OUTPUT = "15";
+
+    private static final int WARMUP = 3;
+    private static final int RUNS = 20;
+    private static final int TIMEOUT = 30;
+
+    private static Path classes;
+    private static Path archive;
+
+    @BeforeClass
+    public static void setUp() throws IOException
+    {
+        Assume.assumeTrue("Benchmarks are disabled", Boolean.getBoolean("garrit.benchmark"));
+
+        classes = Files.createTempDirectory("startup-benchmark");
+        Path source = classes.resolve(SUBMISSION + ".java");
+        try (InputStream stream = StressTest.class.getResourceAsStream("stress/" + SUBMISSION + ".java"))
+        {
+            Files.copy(stream, source);
+        }
+        assertEquals("javac failed", 0, run(Arrays.asList("javac", source.toString()), null).exitCode);
+
+        archive = JavaProfile.prepareArchive(classes.resolve("jvm"));
+        Assume.assumeTrue("No class data sharing archive could be built", archive != null);
+    }
+
+    @Test
+    public void testStartupOptions() throws IOException
+    {
+        System.out.println(
+                String.format("%-36s %10s %10s %10s", "options", "min ms", "median ms", "max ms"));
+
+        measure("-Xshare:off", Arrays.asList("-Xshare:off"));
+        measure("JVM defaults", Collections.emptyList());
+        measure("profile, archive",
+                new JavaProfile(Collections.emptyList(), 0, archive).flagsFor(2, archive));
+        measure("profile, archive and C1 only",
+                new JavaProfile(Collections.emptyList(), 2, archive).flagsFor(2, archive));
+        measure("profile, heap sized to container", new JavaProfile(Collections.emptyList(), 0, null,
+                LXCEnvironment.DEFAULT_MEMORY_LIMIT).flagsFor(2, null));
+        measure("profile, sized heap and C1 only", new JavaProfile(Collections.emptyList(), 2, null,
+                LXCEnvironment.DEFAULT_MEMORY_LIMIT).flagsFor(2, null));
+    }
+
+    private static void measure(String name, List<String> flags) throws IOException
+    {
+        ArrayList<String> command = new ArrayList<>();
+        command.add("java");
+        command.addAll(flags);
+        command.addAll(Arrays.asList("-cp", classes.toString(), SUBMISSION));
+
+        for (int i = 0; i < WARMUP; i++)
+            run(command, INPUT);
+
+        ArrayList<Long> times = new ArrayList<>(RUNS);
+        for (int i = 0; i < RUNS; i++)
+        {
+            long started = System.nanoTime();
+            Result result = run(command, INPUT);
+            times.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+            assertEquals(name + " failed", 0, result.exitCode);
+            assertEquals(name + " gave the wrong answer", OUTPUT, result.stdout.trim());
+        }
+
+        Collections.sort(times);
+        System.out.println(String.format("%-36s %10d %10d %10d", name,
+                times.get(0), times.get(times.size() / 2), times.get(times.size() - 1)));
+    }
+
+    private static Result run(List<String> command, String input) throws IOException
+    {
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        Future<byte[]> stdout = StreamPump.consume(process.getInputStream());
+
+        try (OutputStream stdin = process.getOutputStream())
+        {
+            if (input != null)
+                stdin.write(input.getBytes(StandardCharsets.UTF_8));
+        }
+
+        try
+        {
+            if (!process.waitFor(TIMEOUT, TimeUnit.SECONDS))
+            {
+                process.destroyForcibly();
+                throw new IOException(command.get(0) + " timed out");
+            }
+
+            return new Result(process.exitValue(), new String(stdout.get(), StandardCharsets.UTF_8));
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            throw new IOException("Failed to run " + command.get(0), e);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Result
+    {
+        private final int exitCode;
+        private final String stdout;
+    }
+}
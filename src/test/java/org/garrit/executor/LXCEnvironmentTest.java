@@ -0,0 +1,160 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.garrit.common.messages.SubmissionFile;
+import org.garrit.executor.ExecutionEnvironment.EnvironmentResponse;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Test the parts of {@link LXCEnvironment LXC environments} which need no
+ * containers.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class LXCEnvironmentTest
+{
+    @Test
+    public void testNeverReapsArchiveSpool() throws IOException
+    {
+        Path root = Files.createTempDirectory("workspace-test");
+
+        /* The spool's default location, should it share a root with the
+         * workspaces. */
+        SubmissionFile file = new SubmissionFile();
+        file.setFilename("Main.java");
+        file.setContents("class Main {}".getBytes(StandardCharsets.UTF_8));
+        new ArchiveSpool(root.resolve(ArchiveSpool.DEFAULT_NAME), 1024, 8).spill(Arrays.asList(file));
+
+        Path orphan = Files.createDirectory(root.resolve("garrit-ws-1234"));
+        Files.createDirectory(root.resolve("garrit-spool"));
+        Files.createDirectory(root.resolve("garrit-ws-"));
+        Files.createDirectory(root.resolve("garrit-ws-12.bak"));
+        Files.createFile(root.resolve("garrit-ws-5678"));
+
+        assertEquals(Arrays.asList(orphan), LXCEnvironment.orphanedWorkspaces(root));
+    }
+
+    @Test
+    public void testKillsHostCommandsWhichTimeOut() throws Exception
+    {
+        Assume.assumeTrue("No process filesystem", Files.isDirectory(Paths.get("/proc/self")));
+
+        Path pidFile = Files.createTempFile("timeout-test", ".pid");
+
+        long started = System.nanoTime();
+        try
+        {
+            LXCEnvironment.executeCommand(
+                    Arrays.asList("/bin/sh", "-c", "echo $$ > \"$0\"; exec sleep 30", pidFile.toString()), null, 1);
+            fail("Command outlived its timeout");
+        }
+        catch (ExecutionTimeoutException e)
+        {
+            /* There is no container to reclaim on the host. */
+            assertEquals(-1, e.getReclaimTime());
+            assertFalse(e.isReclaimed());
+        }
+        assertTrue("Timeout not enforced", System.nanoTime() - started < TimeUnit.SECONDS.toNanos(10));
+
+        Path process = Paths.get("/proc", new String(Files.readAllBytes(pidFile), StandardCharsets.UTF_8).trim());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (Files.exists(process) && System.nanoTime() < deadline)
+            TimeUnit.MILLISECONDS.sleep(50);
+
+        assertFalse("Timed-out command still running", Files.exists(process));
+    }
+
+    @Test
+    public void testTimesOutCommandsWhichNeverReadInput() throws Exception
+    {
+        /* Far more than a pipe holds, so that writing it blocks. */
+        char[] input = new char[1024 * 1024];
+        Arrays.fill(input, 'x');
+
+        long started = System.nanoTime();
+        try
+        {
+            LXCEnvironment.executeCommand(Arrays.asList("/bin/sh", "-c", "exec sleep 30"), new String(input), 1);
+            fail("Command outlived its timeout");
+        }
+        catch (ExecutionTimeoutException e)
+        {
+            /* Expected. */
+        }
+        assertTrue("Timeout not enforced", System.nanoTime() - started < TimeUnit.SECONDS.toNanos(10));
+    }
+
+    @Test
+    public void testRunsCommandsWhichLeaveInputUnread() throws Exception
+    {
+        char[] input = new char[1024 * 1024];
+        Arrays.fill(input, 'x');
+
+        EnvironmentResponse response = LXCEnvironment.executeCommand(
+                Arrays.asList("/bin/sh", "-c", "head -c 1"), new String(input), 10);
+
+        assertEquals(EnvironmentResponse.SUCCESS, response.exitCode);
+        assertEquals("x", response.stdout);
+    }
+
+    @Test
+    public void testIgnoresMissingWorkspaceRoot() throws IOException
+    {
+        Path root = Files.createTempDirectory("workspace-test").resolve("missing");
+
+        assertEquals(Arrays.asList(), LXCEnvironment.orphanedWorkspaces(root));
+    }
+
+    @Test
+    public void testSetsLimitsForCgroupVersion()
+    {
+        try
+        {
+            LXCEnvironment.configureLimits(1, 64, 1024);
+            assertEquals(Arrays.asList("-s", "lxc.cgroup.pids.max=64", "-s", "lxc.cgroup.memory.limit_in_bytes=1024"),
+                    LXCEnvironment.limitOptions());
+
+            LXCEnvironment.configureLimits(2, 64, 0);
+            assertEquals(Arrays.asList("-s", "lxc.cgroup2.pids.max=64"), LXCEnvironment.limitOptions());
+        }
+        finally
+        {
+            LXCEnvironment.configureLimits(1, LXCEnvironment.DEFAULT_PIDS_LIMIT, LXCEnvironment.DEFAULT_MEMORY_LIMIT);
+        }
+    }
+
+    @Test
+    public void testRefusesLinksOutOfContainer() throws IOException
+    {
+        Path root = Files.createTempDirectory("container-test");
+        Path host = Files.createTempDirectory("host-test");
+        Files.createDirectories(root.resolve("garrit/input"));
+        Files.createSymbolicLink(root.resolve("garrit/runs"), host);
+
+        assertEquals(root.resolve("garrit/input"), LXCEnvironment.confined(root, "garrit/input"));
+
+        try
+        {
+            LXCEnvironment.confined(root, "garrit/runs");
+            fail("Followed a link out of the container");
+        }
+        catch (IOException e)
+        {
+            assertTrue(e.getMessage().contains("replaced"));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Test the {@link OutputStore output store}.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class OutputStoreTest
+{
+    @Test
+    public void testRetrievesOutput()
+    {
+        OutputStore store = new OutputStore(100, 60);
+        store.put(1, 0, "hello".getBytes());
+
+        assertArrayEquals("hello".getBytes(), store.get(1, 0));
+        assertNull(store.get(1, 1));
+    }
+
+    @Test
+    public void testEvictsOldestBeyondCapacity()
+    {
+        OutputStore store = new OutputStore(10, 60);
+        store.put(1, 0, new byte[6]);
+        store.put(2, 0, new byte[6]);
+
+        assertNull(store.get(1, 0));
+        assertEquals(6, store.size());
+    }
+
+    @Test
+    public void testExpiresOutput()
+    {
+        AtomicLong now = new AtomicLong(0);
+        OutputStore store = new OutputStore(100, 60, now::get);
+        store.put(1, 0, new byte[1]);
+
+        now.set(59999);
+        assertEquals(1, store.get(1, 0).length);
+
+        now.set(60000);
+        assertNull(store.get(1, 0));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testIgnoresOversizedOutput()
+    {
+        OutputStore store = new OutputStore(4, 60);
+        store.put(1, 0, new byte[5]);
+
+        assertNull(store.get(1, 0));
+    }
+}
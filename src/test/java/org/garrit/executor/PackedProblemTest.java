@@ -0,0 +1,103 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.garrit.common.ProblemCase;
+import org.garrit.executor.PackedProblem.PackedCase;
+import org.junit.Test;
+
+/**
+ * Test {@link PackedProblem problem packs}.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class PackedProblemTest
+{
+    @Test
+    public void testRoundTripsCases() throws IOException
+    {
+        Path file = PackedProblem.location(Files.createTempDirectory("pack-test"), "sum");
+        PackedProblem.write(Arrays.asList(problemCase("1", 2, "1 2\n"), problemCase("2", 5, null)), "v1", file);
+
+        PackedProblem packed = PackedProblem.open(file);
+        assertEquals("v1", packed.getSourceVersion());
+
+        List<ProblemCase> cases = packed.getCases();
+        assertEquals(2, cases.size());
+
+        assertEquals("1", cases.get(0).getName());
+        assertEquals(2, cases.get(0).getTimeLimit());
+        assertArrayEquals("1 2\n".getBytes(StandardCharsets.UTF_8), cases.get(0).getInput());
+
+        ByteBuffer input = ((PackedCase) cases.get(0)).getInputBuffer();
+        assertTrue(input.isReadOnly());
+        assertEquals(4, input.remaining());
+        assertTrue(((PackedCase) cases.get(0)).hasInput());
+
+        assertEquals("2", cases.get(1).getName());
+        assertEquals(5, cases.get(1).getTimeLimit());
+        assertNull(cases.get(1).getInput());
+        assertFalse(((PackedCase) cases.get(1)).hasInput());
+        assertFalse(PackedProblem.hasInput(cases.get(1)));
+    }
+
+    @Test
+    public void testRepacksFromPackedCases() throws IOException
+    {
+        Path root = Files.createTempDirectory("pack-test");
+        Path first = root.resolve("first.pack");
+        PackedProblem.write(Arrays.asList(problemCase("1", 1, "a"), problemCase("2", 1, "bc")), "v1", first);
+
+        Path second = root.resolve("second.pack");
+        PackedProblem.write(PackedProblem.open(first).getCases(), "v2", second);
+
+        List<ProblemCase> cases = PackedProblem.open(second).getCases();
+        assertArrayEquals("a".getBytes(StandardCharsets.UTF_8), cases.get(0).getInput());
+        assertArrayEquals("bc".getBytes(StandardCharsets.UTF_8), cases.get(1).getInput());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsForeignFiles() throws IOException
+    {
+        Path file = Files.createTempFile("pack-test", ".pack");
+        Files.write(file, "not a pack at all".getBytes(StandardCharsets.UTF_8));
+
+        PackedProblem.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsTruncatedPacks() throws IOException
+    {
+        Path file = Files.createTempDirectory("pack-test").resolve("truncated.pack");
+        PackedProblem.write(Arrays.asList(problemCase("1", 1, "input")), "v1", file);
+
+        byte[] pack = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(pack, pack.length - 2));
+
+        PackedProblem.open(file);
+    }
+
+    private static ProblemCase problemCase(String name, int timeLimit, String input)
+    {
+        ProblemCase problemCase = new ProblemCase();
+        problemCase.setName(name);
+        problemCase.setTimeLimit(timeLimit);
+        if (input != null)
+            problemCase.setInput(input.getBytes(StandardCharsets.UTF_8));
+
+        return problemCase;
+    }
+}
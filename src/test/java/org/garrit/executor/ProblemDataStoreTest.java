@@ -0,0 +1,95 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.garrit.common.ProblemCase;
+import org.junit.Test;
+
+/**
+ * Test the {@link ProblemDataStore problem data store}.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class ProblemDataStoreTest
+{
+    private static final String OLD_VERSION = "0123456789abcdef0123456789abcdef";
+    private static final String NEW_VERSION = "fedcba9876543210fedcba9876543210";
+
+    @Test
+    public void testLaysOutInputs() throws IOException
+    {
+        ProblemDataStore store = new ProblemDataStore(Files.createTempDirectory("data-test"));
+
+        Path directory = store.materialize("sum", OLD_VERSION, cases("1 2\n"));
+        assertArrayEquals("1 2\n".getBytes(StandardCharsets.UTF_8),
+                Files.readAllBytes(directory.resolve(ProblemDataStore.inputName(0))));
+        assertEquals(1, store.holders(directory));
+
+        assertEquals(directory, store.materialize("sum", OLD_VERSION, cases("1 2\n")));
+        assertEquals(2, store.holders(directory));
+    }
+
+    @Test
+    public void testKeepsSupersededVersionWhileHeld() throws IOException
+    {
+        ProblemDataStore store = new ProblemDataStore(Files.createTempDirectory("data-test"));
+
+        Path old = store.materialize("sum", OLD_VERSION, cases("old"));
+        Path current = store.materialize("sum", NEW_VERSION, cases("new"));
+
+        assertTrue(Files.isDirectory(old));
+        assertTrue(Files.isDirectory(current));
+
+        store.release(current);
+        assertTrue("Latest version deleted", Files.isDirectory(current));
+        assertTrue("Held version deleted", Files.isDirectory(old));
+    }
+
+    @Test
+    public void testPrunesSupersededVersionOnRelease() throws IOException
+    {
+        ProblemDataStore store = new ProblemDataStore(Files.createTempDirectory("data-test"));
+
+        Path old = store.materialize("sum", OLD_VERSION, cases("old"));
+        Path other = store.materialize("sum-other", OLD_VERSION, cases("other"));
+        store.release(other);
+        Path current = store.materialize("sum", NEW_VERSION, cases("new"));
+
+        store.release(old);
+        assertFalse("Superseded version kept", Files.exists(old));
+        assertTrue(Files.isDirectory(current));
+        assertTrue("Another problem's data deleted", Files.isDirectory(other));
+    }
+
+    @Test
+    public void testPrunesVersionsLeftByEarlierRuns() throws IOException
+    {
+        Path root = Files.createTempDirectory("data-test");
+        Path old = new ProblemDataStore(root).materialize("sum", OLD_VERSION, cases("old"));
+
+        Path current = new ProblemDataStore(root).materialize("sum", NEW_VERSION, cases("new"));
+        assertFalse("Stale version kept", Files.exists(old));
+        assertTrue(Files.isDirectory(current));
+    }
+
+    private static List<ProblemCase> cases(String input)
+    {
+        ProblemCase problemCase = new ProblemCase();
+        problemCase.setName("1");
+        problemCase.setTimeLimit(1);
+        problemCase.setInput(input.getBytes(StandardCharsets.UTF_8));
+
+        return Arrays.asList(problemCase);
+    }
+}
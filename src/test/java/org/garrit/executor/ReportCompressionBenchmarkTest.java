@@ -0,0 +1,128 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.garrit.common.messages.Execution;
+import org.garrit.common.messages.ExecutionCase;
+import org.garrit.common.messages.RegisteredSubmission;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Weigh the CPU time spent gzipping results sent to the negotiator against
+ * the bytes it saves, over executions shaped like those the executor reports:
+ * many cases of short numeric output, a few cases of large text output, and
+ * cases {@link DigestedExecutionCase digested} down to a prefix.
+ * <p>
+ * Timings mean little on a loaded build host, so the benchmark is only run
+ * when the <code>garrit.benchmark</code> system property is set, as it is by
+ * the <code>benchmark</code> Maven profile. It prints a table of its
+ * findings.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class ReportCompressionBenchmarkTest
+{
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 1000;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    @BeforeClass
+    public static void setUp()
+    {
+        Assume.assumeTrue("Benchmarks are disabled", Boolean.getBoolean("garrit.benchmark"));
+        Assume.assumeTrue("Thread CPU time is unavailable", threads.isCurrentThreadCpuTimeSupported());
+    }
+
+    @Test
+    public void testCompressionSavesBytes() throws Exception
+    {
+        System.out.println(String.format("%-28s %10s %10s %7s %12s", "payload", "raw B", "gzip B", "ratio",
+                "gzip us/msg"));
+
+        measure("50 numeric cases", execution(50, 64, false));
+        measure("10 cases of 64 KiB text", execution(10, 64 * 1024, false));
+        measure("50 digested cases", execution(50, 64 * 1024, true));
+        measure("1 case of 16 bytes", execution(1, 16, false));
+    }
+
+    private static void measure(String name, Execution execution) throws Exception
+    {
+        byte[] body = mapper.writeValueAsBytes(execution);
+
+        for (int i = 0; i < WARMUP; i++)
+            NegotiatorClient.gzip(body);
+
+        byte[] compressed = null;
+        long started = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            compressed = NegotiatorClient.gzip(body);
+        long cpu = threads.getCurrentThreadCpuTime() - started;
+
+        System.out.println(String.format("%-28s %10d %10d %7.2f %12.1f", name, body.length, compressed.length,
+                (double) compressed.length / body.length, TimeUnit.NANOSECONDS.toMicros(cpu) / (double) ITERATIONS));
+
+        /* Anything much over a few hundred bytes of JSON should shrink. */
+        if (body.length >= 1024)
+            assertTrue(name + " grew when compressed", compressed.length < body.length);
+    }
+
+    /**
+     * @param cases the number of cases
+     * @param outputLength the length of each case's output in bytes
+     * @param digested whether to digest the cases as the executor does when
+     *            outputs are kept locally
+     */
+    private static Execution execution(int cases, int outputLength, boolean digested)
+    {
+        RegisteredSubmission submission = new RegisteredSubmission();
+        submission.setId(1);
+        submission.setProblem("benchmark");
+        submission.setLanguage("java");
+        submission.setEntryPoint("Main");
+
+        Random random = new Random(cases);
+        ArrayList<ExecutionCase> executionCases = new ArrayList<>(cases);
+        for (int i = 0; i < cases; i++)
+        {
+            IndexedExecutionCase executionCase = new IndexedExecutionCase(String.valueOf(i + 1), i);
+            executionCase.setRuntime(random.nextInt(2000));
+            executionCase.setOutput(output(random, outputLength));
+
+            executionCases.add(digested ? DigestedExecutionCase.digest(executionCase, 256) : executionCase);
+        }
+
+        Execution execution = new Execution(submission);
+        execution.setCases(executionCases);
+        return execution;
+    }
+
+    /**
+     * @return lines of whitespace-separated numbers, as most problems expect
+     */
+    private static byte[] output(Random random, int length)
+    {
+        StringBuilder output = new StringBuilder(length + 16);
+        while (output.length() < length)
+        {
+            output.append(random.nextInt(100000));
+            output.append((random.nextInt(8) == 0) ? '\n' : ' ');
+        }
+        output.setLength(length);
+
+        return output.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,82 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.garrit.common.messages.RegisteredSubmission;
+import org.garrit.common.messages.SubmissionFile;
+import org.junit.Test;
+
+/**
+ * Test the {@link ResultCache result cache}.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class ResultCacheTest
+{
+    @Test
+    public void testKeyIgnoresSubmissionId()
+    {
+        RegisteredSubmission first = submission(1, "class Hello {}");
+        RegisteredSubmission second = submission(2, "class Hello {}");
+
+        assertEquals(ResultCache.key(first, "v1"), ResultCache.key(second, "v1"));
+    }
+
+    @Test
+    public void testKeyDependsOnContentsAndProblemVersion()
+    {
+        RegisteredSubmission first = submission(1, "class Hello {}");
+        RegisteredSubmission second = submission(1, "class Hello { }");
+
+        assertNotEquals(ResultCache.key(first, "v1"), ResultCache.key(second, "v1"));
+        assertNotEquals(ResultCache.key(first, "v1"), ResultCache.key(first, "v2"));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed()
+    {
+        ResultCache cache = new ResultCache(2);
+        cache.put("a", "problem", Arrays.asList(new IndexedExecutionCase("1", 0)));
+        cache.put("b", "problem", Arrays.asList(new IndexedExecutionCase("1", 0)));
+        cache.get("a");
+        cache.put("c", "problem", Arrays.asList(new IndexedExecutionCase("1", 0)));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    public void testInvalidatesProblem()
+    {
+        ResultCache cache = new ResultCache(4);
+        cache.put("a", "first", Arrays.asList(new IndexedExecutionCase("1", 0)));
+        cache.put("b", "second", Arrays.asList(new IndexedExecutionCase("1", 0)));
+
+        assertEquals(1, cache.invalidate("first"));
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+    }
+
+    private static RegisteredSubmission submission(int id, String contents)
+    {
+        SubmissionFile file = new SubmissionFile();
+        file.setFilename("Hello.java");
+        file.setContents(contents.getBytes());
+
+        RegisteredSubmission submission = new RegisteredSubmission();
+        submission.setId(id);
+        submission.setLanguage("java");
+        submission.setEntryPoint("Hello");
+        submission.setProblem("hello");
+        submission.setFiles(Arrays.asList(file));
+
+        return submission;
+    }
+}
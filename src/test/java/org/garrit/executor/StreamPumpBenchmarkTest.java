@@ -0,0 +1,100 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Weigh the per-case cost of draining a case's output and error streams on
+ * the {@link StreamPump stream pump}'s bounded pool against starting a thread
+ * for each stream, as the executor once did. Streams are in memory, so that
+ * only the cost of handing them to a thread is measured, and cases are run
+ * as many at a time as the pool is sized for.
+ * <p>
+ * Timings mean little on a loaded build host, so the benchmark is only run
+ * when the <code>garrit.benchmark</code> system property is set, as it is by
+ * the <code>benchmark</code> Maven profile. It prints a table of its
+ * findings.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class StreamPumpBenchmarkTest
+{
+    private static final int CONCURRENT_CASES = 8;
+    private static final int WARMUP = 2000;
+    private static final int ITERATIONS = 20000;
+    private static final int OUTPUT_LENGTH = 64;
+
+    @BeforeClass
+    public static void setUp()
+    {
+        Assume.assumeTrue("Benchmarks are disabled", Boolean.getBoolean("garrit.benchmark"));
+        StreamPump.configure(CONCURRENT_CASES);
+    }
+
+    @Test
+    public void testPoolCostsLessThanThreadPerStream() throws Exception
+    {
+        System.out.println(String.format("%-24s %12s", "streams drained on", "us/case"));
+
+        measure("thread per stream", false, WARMUP);
+        measure("stream pump", true, WARMUP);
+        double threads = measure("thread per stream", false, ITERATIONS);
+        double pump = measure("stream pump", true, ITERATIONS);
+
+        System.out.println(String.format("%-24s %12.1f", "thread per stream", threads));
+        System.out.println(String.format("%-24s %12.1f", "stream pump", pump));
+    }
+
+    /**
+     * @return the mean wall time per case in microseconds
+     */
+    private static double measure(String name, boolean pooled, int iterations) throws Exception
+    {
+        long started = System.nanoTime();
+        for (int i = 0; i < iterations; i += CONCURRENT_CASES)
+        {
+            List<Future<byte[]>> outputs = new ArrayList<>(CONCURRENT_CASES * 2);
+            for (int j = 0; j < CONCURRENT_CASES; j++)
+            {
+                outputs.add(drain(stream(), pooled));
+                outputs.add(drain(stream(), pooled));
+            }
+
+            for (Future<byte[]> output : outputs)
+                assertEquals(name, OUTPUT_LENGTH, output.get().length);
+        }
+        long elapsed = System.nanoTime() - started;
+
+        return TimeUnit.NANOSECONDS.toMicros(elapsed) / (double) iterations;
+    }
+
+    private static Future<byte[]> drain(InputStream stream, boolean pooled)
+    {
+        if (pooled)
+            return StreamPump.consume(stream);
+
+        Callable<byte[]> drain = () -> StreamPump.drain(stream, Long.MAX_VALUE);
+        FutureTask<byte[]> task = new FutureTask<>(drain);
+        new Thread(task).start();
+
+        return task;
+    }
+
+    private static InputStream stream()
+    {
+        return new ByteArrayInputStream(new byte[OUTPUT_LENGTH]);
+    }
+}
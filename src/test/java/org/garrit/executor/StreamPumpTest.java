@@ -0,0 +1,86 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Test the {@link StreamPump stream pump}.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class StreamPumpTest
+{
+    @Test
+    public void testDrainsStream() throws Exception
+    {
+        byte[] contents = new byte[100000];
+        Arrays.fill(contents, (byte) 'x');
+
+        Future<byte[]> consumed = StreamPump.consume(new ByteArrayInputStream(contents));
+
+        assertArrayEquals(contents, consumed.get());
+    }
+
+    @Test
+    public void testDrainsProcessOutput() throws Exception
+    {
+        Process process = new ProcessBuilder("echo", "hello").start();
+        Future<byte[]> stdout = StreamPump.consume(process.getInputStream());
+        Future<byte[]> stderr = StreamPump.consume(process.getErrorStream());
+
+        process.waitFor();
+
+        assertEquals("hello\n", new String(stdout.get(), "UTF-8"));
+        assertEquals(0, stderr.get().length);
+    }
+
+    @Test
+    public void testRetainsHeadAndTailBeyondLimit() throws Exception
+    {
+        byte[] contents = new byte[100000];
+        Arrays.fill(contents, (byte) 'x');
+        byte[] end = "\n1234\n".getBytes("UTF-8");
+        System.arraycopy(end, 0, contents, contents.length - end.length, end.length);
+
+        byte[] retained = StreamPump.consume(new ByteArrayInputStream(contents), 1000).get();
+
+        assertEquals(1000 + 8192, retained.length);
+        assertArrayEquals(Arrays.copyOf(contents, 1000), Arrays.copyOf(retained, 1000));
+        assertTrue(new String(retained, "UTF-8").endsWith("x\n1234\n"));
+    }
+
+    @Test
+    public void testClosesStream() throws Exception
+    {
+        ClosingStream stream = new ClosingStream();
+        StreamPump.consume(stream).get();
+
+        assertEquals(true, stream.closed);
+    }
+
+    private static class ClosingStream extends InputStream
+    {
+        private boolean closed = false;
+
+        @Override
+        public int read()
+        {
+            return -1;
+        }
+
+        @Override
+        public void close()
+        {
+            this.closed = true;
+        }
+    }
+}
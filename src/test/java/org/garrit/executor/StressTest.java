@@ -0,0 +1,306 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.garrit.common.ProblemCase;
+import org.garrit.common.messages.ExecutionCase;
+import org.garrit.common.messages.RegisteredSubmission;
+import org.garrit.common.messages.SubmissionFile;
+import org.garrit.executor.CpuSlots.CpuSlot;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Run hostile submissions through the {@link JavaExecutor Java executor} in
+ * {@link LXCEnvironment LXC environments}, alongside well-behaved ones, and
+ * check that the hostile ones are contained without slowing the others. The
+ * submissions are kept under <code>stress/</code> in the test resources.
+ * <p>
+ * The suite needs a host set up for the executor, with LXC and
+ * <code>cputime</code> installed, at least two cores, and the cgroup limits
+ * of the Garrit LXC template in effect. It takes a few minutes, so it is only
+ * run when the <code>garrit.stress</code> system property is set, as it is by
+ * the <code>stress</code> Maven profile.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class StressTest
+{
+    private static final List<String> HOSTILE = Arrays.asList(
+            "ForkBomb", "OutputFlood", "MemoryHog", "DiskFiller", "BusyThreads", "EndlessReader");
+    private static final String WELL_BEHAVED = "Sum";
+
+    /**
+     * The time limit in seconds of every case.
+     */
+    private static final int TIME_LIMIT = 2;
+    /**
+     * The number of well-behaved submissions run with and without company.
+     */
+    private static final int RUNS = 5;
+    /**
+     * Well-behaved submissions may take at most this many times as long under
+     * stress, plus {@link #LATENCY_SLACK} milliseconds.
+     */
+    private static final double LATENCY_FACTOR = 1.5;
+    private static final long LATENCY_SLACK = 1000;
+    /**
+     * The time in seconds, beyond its time limit, within which a hostile case
+     * must have been killed and its environment torn down.
+     */
+    private static final int CONTAINMENT_GRACE = 15;
+    private static final String WORKSPACE_QUOTA = "64m";
+    private static final long OUTPUT_LIMIT = 1024 * 1024;
+
+    private static CpuSlots cpuSlots;
+
+    @BeforeClass
+    public static void setUp()
+    {
+        Assume.assumeTrue("Stress tests are disabled", Boolean.getBoolean("garrit.stress"));
+        Assume.assumeTrue("LXC is unavailable", Files.isExecutable(Paths.get("/usr/bin/lxc-execute")));
+        Assume.assumeTrue("cputime is unavailable", Files.isExecutable(Paths.get("/usr/local/bin/cputime")));
+
+        cpuSlots = CpuSlots.forHost(0, 1);
+        Assume.assumeTrue("At least two cores are needed", cpuSlots.getSlots().size() >= 2);
+
+        LXCEnvironment.configureWorkspaces(null, WORKSPACE_QUOTA);
+        LXCEnvironment.configureOutputLimit(OUTPUT_LIMIT);
+    }
+
+    @AfterClass
+    public static void tearDown()
+    {
+        LXCEnvironment.configureWorkspaces(null, null);
+        LXCEnvironment.configureOutputLimit(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testHostileSubmissionsAreContained() throws Exception
+    {
+        CpuSlot wellBehavedSlot = cpuSlots.getSlots().get(0);
+        List<Long> baseline = runWellBehaved(wellBehavedSlot);
+
+        /* Keep every hostile submission running, over and over, for as long
+         * as the well-behaved ones take. */
+        AtomicBoolean stop = new AtomicBoolean(false);
+        ExecutorService pool = Executors.newFixedThreadPool(HOSTILE.size());
+        ArrayList<Future<List<Long>>> hostile = new ArrayList<>();
+        for (int i = 0; i < HOSTILE.size(); i++)
+        {
+            String name = HOSTILE.get(i);
+            CpuSlot slot = cpuSlots.getSlots().get(1 + i % (cpuSlots.getSlots().size() - 1));
+            hostile.add(pool.submit(() -> runHostile(name, slot, stop)));
+        }
+
+        List<Long> stressed;
+        try
+        {
+            stressed = runWellBehaved(wellBehavedSlot);
+        }
+        finally
+        {
+            stop.set(true);
+            pool.shutdown();
+        }
+
+        for (int i = 0; i < HOSTILE.size(); i++)
+        {
+            String name = HOSTILE.get(i);
+            List<Long> containment;
+            try
+            {
+                containment = hostile.get(i).get(2 * (TIME_LIMIT + CONTAINMENT_GRACE) + 60, TimeUnit.SECONDS);
+            }
+            catch (TimeoutException e)
+            {
+                fail(name + " was never contained");
+                return;
+            }
+            catch (ExecutionException e)
+            {
+                throw new AssertionError(name + " escaped: " + e.getCause(), e.getCause());
+            }
+
+            assertTrue(name + " never ran", !containment.isEmpty());
+            for (long milliseconds : containment)
+                assertTrue(String.format("%s took %d ms to contain", name, milliseconds),
+                        milliseconds <= TimeUnit.SECONDS.toMillis(TIME_LIMIT + CONTAINMENT_GRACE));
+        }
+
+        /* Latency: the typical submission is barely slowed. Throughput: the
+         * same amount of work gets done in barely more time. */
+        assertTrue(String.format("Median latency rose from %d ms to %d ms", median(baseline), median(stressed)),
+                median(stressed) <= median(baseline) * LATENCY_FACTOR + LATENCY_SLACK);
+        assertTrue(String.format("Total time rose from %d ms to %d ms", sum(baseline), sum(stressed)),
+                sum(stressed) <= sum(baseline) * LATENCY_FACTOR + RUNS * LATENCY_SLACK);
+    }
+
+    /**
+     * Run the well-behaved submission, one run after another, checking its
+     * results.
+     *
+     * @param slot the cores on which to run it
+     * @return the time in milliseconds taken by each run, from creating its
+     *         environment to tearing it down
+     */
+    private static List<Long> runWellBehaved(CpuSlot slot) throws IOException
+    {
+        ArrayList<Long> latencies = new ArrayList<>();
+
+        for (int i = 0; i < RUNS; i++)
+        {
+            long started = System.nanoTime();
+            ExecutionCase executionCase;
+
+            ExecutionEnvironment environment = ExecutionEnvironmentFactory.getExecutionEnvironment(slot);
+            try
+            {
+                Executor executor = new JavaExecutor(submission(WELL_BEHAVED), environment);
+                executor.compile();
+                executionCase = executor.evaluate(problemCase("1 2 3\n"));
+            }
+            finally
+            {
+                environment.close();
+            }
+
+            latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            assertEquals("6\n", new String(executionCase.getOutput(), StandardCharsets.UTF_8));
+        }
+
+        return latencies;
+    }
+
+    /**
+     * Run a hostile submission repeatedly until told to stop. Each run must
+     * fail or time out; a timed-out run must have its container reclaimed.
+     *
+     * @param name the submission's class
+     * @param slot the cores on which to run it
+     * @param stop set once the submission should stop being run
+     * @return the time in milliseconds taken by each run, from starting its
+     *         case to tearing down its environment
+     */
+    private static List<Long> runHostile(String name, CpuSlot slot, AtomicBoolean stop) throws IOException
+    {
+        ArrayList<Long> containment = new ArrayList<>();
+
+        while (!stop.get())
+        {
+            long started;
+
+            ExecutionEnvironment environment = ExecutionEnvironmentFactory.getExecutionEnvironment(slot);
+            try
+            {
+                Executor executor = new JavaExecutor(submission(name), environment);
+                executor.compile();
+
+                started = System.nanoTime();
+                try
+                {
+                    executor.evaluate(problemCase(null));
+                    fail(name + " completed its case");
+                }
+                catch (IOException e)
+                {
+                    ExecutionTimeoutException timeout = timeoutOf(e);
+                    if (timeout != null)
+                        assertTrue(name + " was not confirmed dead after timing out", timeout.isReclaimed());
+                }
+            }
+            finally
+            {
+                environment.close();
+            }
+
+            containment.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        }
+
+        return containment;
+    }
+
+    private static ExecutionTimeoutException timeoutOf(Throwable throwable)
+    {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause())
+            if (cause instanceof ExecutionTimeoutException)
+                return (ExecutionTimeoutException) cause;
+
+        return null;
+    }
+
+    private static RegisteredSubmission submission(String name) throws IOException
+    {
+        ByteArrayOutputStream source = new ByteArrayOutputStream();
+        try (InputStream stream = StressTest.class.getResourceAsStream("stress/" + name + ".java"))
+        {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) >= 0)
+                source.write(buffer, 0, read);
+        }
+
+        SubmissionFile file = new SubmissionFile();
+        file.setFilename(name + ".java");
+        file.setContents(source.toByteArray());
+
+        RegisteredSubmission submission = new RegisteredSubmission();
+        submission.setLanguage("java");
+        submission.setEntryPoint(name);
+        submission.setFiles(Arrays.asList(file));
+        return submission;
+    }
+
+    /**
+     * @param input the case's input, or null to leave stdin open and empty
+     */
+    private static ProblemCase problemCase(String input)
+    {
+        ProblemCase problemCase = new ProblemCase();
+        problemCase.setName("stress");
+        problemCase.setTimeLimit(TIME_LIMIT);
+        if (input != null)
+            problemCase.setInput(input.getBytes(StandardCharsets.UTF_8));
+
+        return problemCase;
+    }
+
+    private static long median(List<Long> values)
+    {
+        ArrayList<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    private static long sum(List<Long> values)
+    {
+        long sum = 0;
+        for (long value : values)
+            sum += value;
+
+        return sum;
+    }
+}
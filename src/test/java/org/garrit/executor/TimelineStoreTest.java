@@ -0,0 +1,62 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.garrit.executor.SubmissionTimeline.Event;
+import org.garrit.executor.SubmissionTimeline.Stage;
+import org.junit.Test;
+
+/**
+ * Test the {@link TimelineStore timeline store}.
+ *
+ * @author Samuel Coleman <samuel@seenet.ca>
+ * @since 1.0.0
+ */
+public class TimelineStoreTest
+{
+    @Test
+    public void testEvictsOldestTimeline()
+    {
+        TimelineStore store = new TimelineStore(2);
+        store.start(1);
+        store.start(2);
+        store.start(3);
+
+        assertEquals(2, store.size());
+        assertNull(store.get(1));
+        assertNotNull(store.get(2));
+        assertNotNull(store.get(3));
+    }
+
+    @Test
+    public void testRestartReplacesTimeline()
+    {
+        TimelineStore store = new TimelineStore(2);
+        store.start(1);
+        SubmissionTimeline replacement = store.start(1);
+        store.start(2);
+
+        assertEquals(2, store.size());
+        assertSame(replacement, store.get(1));
+    }
+
+    @Test
+    public void testRecordsEventsInOrder()
+    {
+        SubmissionTimeline timeline = new TimelineStore(1).start(7);
+        timeline.record(Stage.ENQUEUED);
+        timeline.record(Stage.CASE_STARTED, "case-1");
+
+        List<Event> events = timeline.getEvents();
+        assertEquals(2, events.size());
+        assertEquals(Stage.ENQUEUED, events.get(0).getStage());
+        assertEquals("case-1", events.get(1).getDetail());
+        assertTrue(events.get(0).getOffset() <= events.get(1).getOffset());
+    }
+}
@@ -0,0 +1,53 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class WarmSetTest
+{
+    @Test
+    public void testOrdersByRecency()
+    {
+        AtomicLong clock = new AtomicLong();
+        WarmSet set = new WarmSet(4, 60, clock::get);
+
+        set.touch("java");
+        clock.addAndGet(1000);
+        set.touch("python");
+        clock.addAndGet(1000);
+        set.touch("java");
+
+        assertEquals(Arrays.asList("java", "python"), set.get());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed()
+    {
+        AtomicLong clock = new AtomicLong();
+        WarmSet set = new WarmSet(2, 60, clock::get);
+
+        set.touch("a");
+        set.touch("b");
+        set.touch("a");
+        set.touch("c");
+
+        assertEquals(Arrays.asList("c", "a"), set.get());
+    }
+
+    @Test
+    public void testForgetsUnusedNames()
+    {
+        AtomicLong clock = new AtomicLong();
+        WarmSet set = new WarmSet(4, 60, clock::get);
+
+        set.touch("java");
+        clock.addAndGet(61000);
+
+        assertEquals(Collections.emptyList(), set.get());
+    }
+}
@@ -0,0 +1,134 @@
+package org.garrit.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.garrit.executor.ExecutionManagerTest.MockExecutor;
+import org.garrit.executor.NegotiatorClient.Compression;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class WorkPollerTest
+{
+    private HttpServer negotiator;
+    private final List<String> queries = Collections.synchronizedList(new ArrayList<>());
+    private volatile String work;
+    private URI negotiatorUri;
+
+    @Before
+    public void startNegotiator() throws IOException
+    {
+        this.negotiator = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.negotiator.createContext("/work", exchange ->
+        {
+            this.queries.add(exchange.getRequestURI().getQuery());
+
+            if (this.work == null)
+            {
+                exchange.sendResponseHeaders(204, -1);
+            }
+            else
+            {
+                byte[] body = this.work.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream stream = exchange.getResponseBody())
+                {
+                    stream.write(body);
+                }
+            }
+
+            exchange.close();
+        });
+        this.negotiator.start();
+
+        this.negotiatorUri = new URI("http://localhost:" + this.negotiator.getAddress().getPort() + "/");
+        ExecutorFactory.registerExecutor("foo", MockExecutor.class);
+    }
+
+    @After
+    public void stopNegotiator()
+    {
+        this.negotiator.stop(0);
+    }
+
+    @Test
+    public void testPullsAsManySubmissionsAsFreeSlots() throws Exception
+    {
+        ExecutorConfiguration config = new ExecutorConfiguration();
+        config.setProblems(Paths.get("."));
+        config.setNegotiator(this.negotiatorUri);
+        config.setName("node-1");
+        config.setWorkers(2);
+
+        ExecutionManager manager = new ExecutionManager(config);
+        NegotiatorClient client = new NegotiatorClient(this.negotiatorUri, Compression.NONE, 0, 1);
+        WorkPoller poller = new WorkPoller(manager, client, "node-1", 1);
+
+        this.work = "[{\"id\": 1, \"language\": \"foo\"}]";
+        assertEquals(1, poller.poll());
+        assertEquals("slots=2&wait=1&executor=node-1", this.queries.get(0));
+
+        this.work = "[{\"id\": 2, \"language\": \"foo\"}]";
+        assertEquals(1, poller.poll());
+        assertEquals("slots=1&wait=1&executor=node-1", this.queries.get(1));
+
+        /* Both slots are now spoken for, so the negotiator isn't asked. */
+        assertEquals(0, poller.poll());
+        assertEquals(2, this.queries.size());
+
+        client.close();
+        manager.close();
+
+        assertEquals(2, manager.getQueued().size());
+        assertTrue(manager.getQueued().contains(1));
+        assertTrue(manager.getQueued().contains(2));
+    }
+
+    @Test
+    public void testNoContentEnqueuesNothing() throws Exception
+    {
+        ExecutionManager manager = new ExecutionManager(Paths.get("."), this.negotiatorUri);
+        NegotiatorClient client = new NegotiatorClient(this.negotiatorUri, Compression.NONE, 0, 1);
+        WorkPoller poller = new WorkPoller(manager, client, null, 1);
+
+        this.work = null;
+        assertEquals(0, poller.poll());
+        assertEquals("slots=1&wait=1", this.queries.get(0));
+
+        client.close();
+        manager.close();
+
+        assertTrue(manager.getQueued().isEmpty());
+    }
+
+    @Test
+    public void testRejectsUnavailableLanguages() throws Exception
+    {
+        ExecutionManager manager = new ExecutionManager(Paths.get("."), this.negotiatorUri);
+        NegotiatorClient client = new NegotiatorClient(this.negotiatorUri, Compression.NONE, 0, 1);
+        WorkPoller poller = new WorkPoller(manager, client, null, 1);
+
+        this.work = "[{\"id\": 3, \"language\": \"nope\"}]";
+        assertEquals(0, poller.poll());
+
+        client.close();
+        manager.close();
+
+        assertTrue(manager.getQueued().isEmpty());
+        assertEquals(1, manager.errorQueue.size());
+    }
+}
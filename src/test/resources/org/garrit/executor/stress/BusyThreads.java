@@ -0,0 +1,23 @@
+/**
+ * Spin on many more threads than there are cores.
+ */
+public class BusyThreads
+{
+    private static volatile long counter = 0;
+
+    public static void main(String[] args) throws Exception
+    {
+        int threads = 8 * Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < threads; i++)
+        {
+            new Thread(() ->
+            {
+                while (true)
+                    counter++;
+            }).start();
+        }
+
+        while (true)
+            counter++;
+    }
+}
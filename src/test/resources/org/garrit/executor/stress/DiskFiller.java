@@ -0,0 +1,25 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Write files until the disk is full, then keep trying.
+ */
+public class DiskFiller
+{
+    public static void main(String[] args) throws Exception
+    {
+        byte[] block = new byte[1 << 20];
+        for (int i = 0;; i++)
+        {
+            try (FileOutputStream output = new FileOutputStream("/tmp/fill-" + i))
+            {
+                while (true)
+                    output.write(block);
+            }
+            catch (IOException e)
+            {
+                /* Full; start another file. */
+            }
+        }
+    }
+}
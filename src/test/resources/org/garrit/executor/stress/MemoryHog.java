@@ -0,0 +1,27 @@
+import java.util.ArrayList;
+
+/**
+ * Allocate and touch memory until the heap or the container runs out, then
+ * hold on to it.
+ */
+public class MemoryHog
+{
+    public static void main(String[] args) throws Exception
+    {
+        ArrayList<long[]> hoard = new ArrayList<>();
+        try
+        {
+            while (true)
+            {
+                long[] block = new long[1 << 20];
+                for (int i = 0; i < block.length; i += 512)
+                    block[i] = i;
+                hoard.add(block);
+            }
+        }
+        catch (OutOfMemoryError e)
+        {
+            Thread.sleep(Long.MAX_VALUE);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+import java.io.BufferedOutputStream;
+import java.util.Arrays;
+
+/**
+ * Write to stdout and stderr as fast as possible.
+ */
+public class OutputFlood
+{
+    public static void main(String[] args) throws Exception
+    {
+        byte[] line = new byte[4096];
+        Arrays.fill(line, (byte) 'x');
+        line[line.length - 1] = '\n';
+
+        BufferedOutputStream stdout = new BufferedOutputStream(System.out, 1 << 16);
+        BufferedOutputStream stderr = new BufferedOutputStream(System.err, 1 << 16);
+        while (true)
+        {
+            stdout.write(line);
+            stderr.write(line);
+        }
+    }
+}
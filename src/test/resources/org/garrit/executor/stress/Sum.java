@@ -0,0 +1,17 @@
+import java.util.Scanner;
+
+/**
+ * A well-behaved submission: sum the numbers given on stdin.
+ */
+public class Sum
+{
+    public static void main(String[] args)
+    {
+        Scanner scanner = new Scanner(System.in);
+        long sum = 0;
+        while (scanner.hasNextLong())
+            sum += scanner.nextLong();
+
+        System.out.println(sum);
+    }
+}